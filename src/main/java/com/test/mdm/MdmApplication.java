@@ -2,8 +2,12 @@ package com.test.mdm;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
-@SpringBootApplication(scanBasePackages = "com.test.mdm")
+// the R2DBC pool of the reactive stack is created from spring.datasource, see DeviceR2dbcRepository
+@SpringBootApplication(scanBasePackages = "com.test.mdm", exclude = R2dbcAutoConfiguration.class)
+@ConfigurationPropertiesScan
 public class MdmApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,37 @@
+package com.test.mdm.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String DEVICES_BY_ID = "devicesById";
+    public static final String DEVICES_BY_DEVICE_ID = "devicesByDeviceId";
+
+    /**
+     * Regions of the second-level cache, resolved by Caffeine itself. Hibernate resolves a configured cache URI
+     * through its class loader service, which cannot read {@code classpath:} URIs outside of the IDE.
+     */
+    private static final URI SECOND_LEVEL_CACHE_CONFIG = URI.create("classpath:hibernate-cache.conf");
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager() {
+        return Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(SECOND_LEVEL_CACHE_CONFIG, CacheConfig.class.getClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+}
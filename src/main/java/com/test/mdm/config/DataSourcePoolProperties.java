@@ -0,0 +1,23 @@
+package com.test.mdm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Sizing of the connection pool by the database's cores, {@code cores * 2 + effective spindles}, applied unless
+ * {@code spring.datasource.hikari.maximum-pool-size} is set.
+ *
+ * @param autoSize          whether the pool is sized from the cores
+ * @param databaseCores     cores of the database server, the cores available to this JVM when 0
+ * @param effectiveSpindles disks the database can read from concurrently, 0 when the working set is cached
+ */
+@ConfigurationProperties(prefix = "mdm.datasource.pool")
+public record DataSourcePoolProperties(@DefaultValue("false") boolean autoSize,
+                                       @DefaultValue("0") int databaseCores,
+                                       @DefaultValue("1") int effectiveSpindles) {
+
+    public int poolSize(int availableProcessors) {
+        int cores = databaseCores > 0 ? databaseCores : availableProcessors;
+        return cores * 2 + effectiveSpindles;
+    }
+}
@@ -0,0 +1,26 @@
+package com.test.mdm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Period;
+
+/**
+ * @param deleteMode      what deleting a device does with its row
+ * @param partitionsAhead monthly archive partitions created ahead of the current month
+ * @param retention       age after which archive partitions are dropped, archived devices are kept when unset
+ */
+@ConfigurationProperties(prefix = "mdm.devices.archive")
+public record DeviceArchiveProperties(@DefaultValue("delete") DeleteMode deleteMode,
+                                      @DefaultValue("2") int partitionsAhead,
+                                      Period retention) {
+
+    public enum DeleteMode {
+        DELETE,
+        /**
+         * The device is moved to {@code device_archive}, partitioned by month of archival, and is gone for the API
+         * like a deleted one. Its deviceId can be registered again.
+         */
+        ARCHIVE
+    }
+}
@@ -0,0 +1,20 @@
+package com.test.mdm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param batchSize       devices written per transaction by bulk ingestion
+ * @param statusChunkSize devices updated per transaction by a bulk status job
+ * @param jobRetention    how long a finished bulk status job can still be fetched
+ * @param jobTimeout      how long a running bulk status job may go without a committed chunk before it is failed as
+ *                        abandoned, longer than a chunk takes
+ */
+@ConfigurationProperties(prefix = "mdm.devices.bulk")
+public record DeviceBulkProperties(@DefaultValue("1000") int batchSize,
+                                   @DefaultValue("1000") int statusChunkSize,
+                                   @DefaultValue("1h") Duration jobRetention,
+                                   @DefaultValue("10m") Duration jobTimeout) {
+}
@@ -0,0 +1,33 @@
+package com.test.mdm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param invalidation how committed changes reach the device caches of the other instances
+ */
+@ConfigurationProperties(prefix = "mdm.devices.cache")
+public record DeviceCacheProperties(@DefaultValue Invalidation invalidation) {
+
+    public enum InvalidationType {
+        /**
+         * NOTIFY to every instance listening on the same database.
+         */
+        POSTGRES,
+        /**
+         * This instance only, for a single instance and for tests.
+         */
+        LOCAL
+    }
+
+    /**
+     * @param channel        notification channel shared by the instances
+     * @param reconnectDelay wait before listening again after the listening connection failed
+     */
+    public record Invalidation(@DefaultValue("postgres") InvalidationType type,
+                               @DefaultValue("device_invalidation") String channel,
+                               @DefaultValue("5s") Duration reconnectDelay) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.test.mdm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param pollInterval  how often subscribers are checked for changes committed by other instances
+ * @param batchSize     changes read per query and returned per long-poll response at most
+ * @param maxWait       longest wait of a long-poll request
+ * @param streamTimeout lifetime of a server-sent events subscription, clients reconnect with Last-Event-ID
+ * @param streamBuffer  changes queued for a server-sent events subscriber, one falling further behind reads the rest
+ *                      itself as its client takes them
+ * @param retention     age after which changes are purged
+ */
+@ConfigurationProperties(prefix = "mdm.devices.changes")
+public record DeviceChangeProperties(@DefaultValue("500ms") Duration pollInterval,
+                                     @DefaultValue("500") int batchSize,
+                                     @DefaultValue("30s") Duration maxWait,
+                                     @DefaultValue("30m") Duration streamTimeout,
+                                     @DefaultValue("2000") int streamBuffer,
+                                     @DefaultValue("7d") Duration retention) {
+}
@@ -0,0 +1,22 @@
+package com.test.mdm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "mdm.devices")
+public record DeviceProperties(@DefaultValue Page page) {
+
+    public record Page(@DefaultValue("100") int defaultSize,
+                       @DefaultValue("1000") int maxSize) {
+
+        /**
+         * @return the requested page size capped at the maximum, the default when none or none positive is requested
+         */
+        public int resolve(Integer size) {
+            if (size == null || size < 1) {
+                return defaultSize;
+            }
+            return Math.min(size, maxSize);
+        }
+    }
+}
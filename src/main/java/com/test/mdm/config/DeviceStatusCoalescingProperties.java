@@ -0,0 +1,42 @@
+package com.test.mdm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param enabled       buffers unconditional status updates and writes them behind, conditional ones (If-Match)
+ *                      always go straight to the database
+ * @param flushInterval longest time a status waits in the buffer
+ * @param maxBatchSize  devices written per UPDATE, a full batch is flushed without waiting for the interval
+ * @param maxPending    devices buffered at most, further devices are written directly
+ * @param syncTimeout   longest wait of a {@link Durability#SYNC} request for its commit, then it is answered with 503
+ *                      and its status may still be written
+ * @param stopTimeout   longest wait on shutdown for the buffer to be written, statuses still buffered then are lost
+ * @param retryBackoff  wait before writing a status nobody waits for again after its batch failed, doubled with
+ *                      every further failure
+ * @param maxAttempts   writes of such a status, it is dropped after the last failed one
+ */
+@ConfigurationProperties(prefix = "mdm.devices.status-coalescing")
+public record DeviceStatusCoalescingProperties(@DefaultValue("false") boolean enabled,
+                                               @DefaultValue("sync") Durability durability,
+                                               @DefaultValue("50ms") Duration flushInterval,
+                                               @DefaultValue("1000") int maxBatchSize,
+                                               @DefaultValue("100000") int maxPending,
+                                               @DefaultValue("5s") Duration syncTimeout,
+                                               @DefaultValue("10s") Duration stopTimeout,
+                                               @DefaultValue("100ms") Duration retryBackoff,
+                                               @DefaultValue("5") int maxAttempts) {
+
+    public enum Durability {
+        /**
+         * The request returns once the batch holding its status is committed, many requests share one commit.
+         */
+        SYNC,
+        /**
+         * The request returns 202 once its status is buffered, buffered statuses are lost if the instance dies.
+         */
+        ASYNC
+    }
+}
@@ -0,0 +1,53 @@
+package com.test.mdm.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import static com.test.mdm.util.Constant.CONNECTION_POOL_SIZED;
+
+/**
+ * Sizes a fixed Hikari pool from {@link DataSourcePoolProperties} after the {@code spring.datasource.hikari}
+ * properties are bound and before the pool starts. The pool is fixed so that a burst never waits for new
+ * connections to be opened.
+ */
+@Slf4j
+@Component
+public class HikariPoolSizer implements BeanPostProcessor, EnvironmentAware, Ordered {
+
+    static final String MAXIMUM_POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+    static final String MINIMUM_IDLE = "spring.datasource.hikari.minimum-idle";
+
+    private Binder binder;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.binder = Binder.get(environment);
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource dataSource) {
+            DataSourcePoolProperties properties = binder.bindOrCreate("mdm.datasource.pool", DataSourcePoolProperties.class);
+            if (properties.autoSize() && !binder.bind(MAXIMUM_POOL_SIZE, Integer.class).isBound()) {
+                int poolSize = properties.poolSize(Runtime.getRuntime().availableProcessors());
+                dataSource.setMaximumPoolSize(poolSize);
+                if (!binder.bind(MINIMUM_IDLE, Integer.class).isBound()) {
+                    dataSource.setMinimumIdle(poolSize);
+                }
+                log.info(CONNECTION_POOL_SIZED, poolSize);
+            }
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
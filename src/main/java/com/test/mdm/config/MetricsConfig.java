@@ -0,0 +1,22 @@
+package com.test.mdm.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Per-operation timer of the device service, tagged by operation and exception only, never by device.
+     */
+    public static final String DEVICE_OPERATION_METRIC = "mdm.devices.operation";
+    public static final String DEVICE_ROWS_METRIC = "mdm.devices.rows";
+    public static final String OPERATION_TAG = "operation";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
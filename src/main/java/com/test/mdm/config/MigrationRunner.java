@@ -0,0 +1,32 @@
+package com.test.mdm.config;
+
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import static com.test.mdm.util.Constant.DATABASE_MIGRATED;
+
+/**
+ * Exits the migrate profile once Liquibase, initialized as a dependency of this runner, has applied the changelog.
+ */
+@Slf4j
+@Component
+@Profile("migrate")
+@RequiredArgsConstructor
+public class MigrationRunner implements ApplicationRunner {
+
+    private final SpringLiquibase liquibase;
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info(DATABASE_MIGRATED, liquibase.getChangeLog(), liquibase.getContexts());
+        System.exit(SpringApplication.exit(context));
+    }
+}
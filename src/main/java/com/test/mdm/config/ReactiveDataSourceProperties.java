@@ -0,0 +1,22 @@
+package com.test.mdm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * R2DBC pool of the reactive stack, connecting to {@code spring.datasource} with its credentials, see
+ * {@link com.test.mdm.repository.DeviceR2dbcRepository}.
+ *
+ * @param initialSize    connections opened on start
+ * @param maxSize        connections at most, next to the JDBC pool the writes still go through
+ * @param maxIdleTime    idle time after which a connection is closed
+ * @param maxAcquireTime wait for a connection before the read fails
+ */
+@ConfigurationProperties(prefix = "mdm.datasource.reactive")
+public record ReactiveDataSourceProperties(@DefaultValue("10") int initialSize,
+                                           @DefaultValue("20") int maxSize,
+                                           @DefaultValue("30m") Duration maxIdleTime,
+                                           @DefaultValue("2s") Duration maxAcquireTime) {
+}
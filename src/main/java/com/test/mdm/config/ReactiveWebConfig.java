@@ -0,0 +1,21 @@
+package com.test.mdm.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+
+@Configuration
+@ConditionalOnWebApplication(type = REACTIVE)
+public class ReactiveWebConfig {
+
+    /**
+     * Tomcat, there for the servlet stack, would be picked first; the reactive stack serves from Netty's event loops.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
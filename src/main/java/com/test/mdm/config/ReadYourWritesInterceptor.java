@@ -0,0 +1,115 @@
+package com.test.mdm.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.test.mdm.controller.RateLimited;
+import com.test.mdm.controller.RateLimited.EndpointClass;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.concurrent.Callable;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
+/**
+ * Read-your-writes on top of lagging replicas: after a client wrote a device, its reads go to the primary for
+ * {@code mdm.datasource.replicas.read-your-writes-window}. The window is restarted when the write completes.
+ * <p>
+ * Only clients with a trusted identity are pinned, see {@link RequestLimitInterceptor#clientOf}: deployments with
+ * replicas need authenticated clients or {@code mdm.requests.client-header}. Anonymous clients are pinned by their
+ * address with {@code mdm.datasource.replicas.read-your-writes-by-address}, otherwise their reads may miss their
+ * writes for up to the replay lag.
+ * <p>
+ * The pin is thread-bound, so it is carried over to the thread writing a streamed response as well.
+ */
+@Component
+@ConditionalOnWebApplication(type = SERVLET)
+@ConditionalOnProperty(prefix = "mdm.datasource.replicas", name = "enabled", havingValue = "true")
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor, CallableProcessingInterceptor {
+
+    private static final String PRIMARY_ATTRIBUTE = ReadYourWritesInterceptor.class.getName() + ".primary";
+
+    private final RequestLimitProperties requestLimitProperties;
+    private final boolean byAddress;
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesInterceptor(RequestLimitProperties requestLimitProperties,
+                                     ReplicaDataSourceProperties replicaProperties) {
+        this.requestLimitProperties = requestLimitProperties;
+        this.byAddress = replicaProperties.readYourWritesByAddress();
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(replicaProperties.readYourWritesWindow())
+                .build();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        RateLimited rateLimited = method.getMethodAnnotation(RateLimited.class);
+        if (rateLimited == null) {
+            return true;
+        }
+        String client = clientOf(request);
+        if (client == null) {
+            return true;
+        }
+        if (rateLimited.value() == EndpointClass.WRITE) {
+            recentWriters.put(client, Boolean.TRUE);
+        } else if (recentWriters.getIfPresent(client) != null) {
+            request.setAttribute(PRIMARY_ATTRIBUTE, Boolean.TRUE);
+            DataSourceRouting.requirePrimary();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        DataSourceRouting.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getDispatcherType() == DispatcherType.REQUEST && handler instanceof HandlerMethod method) {
+            RateLimited rateLimited = method.getMethodAnnotation(RateLimited.class);
+            if (rateLimited != null && rateLimited.value() == EndpointClass.WRITE) {
+                String client = clientOf(request);
+                if (client != null) {
+                    recentWriters.put(client, Boolean.TRUE);
+                }
+            }
+        }
+        DataSourceRouting.clear();
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        if (request.getAttribute(PRIMARY_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+            DataSourceRouting.requirePrimary();
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        DataSourceRouting.clear();
+    }
+
+    /**
+     * @return the client, {@code null} when it has no trusted identity and is not told apart by its address
+     */
+    private String clientOf(HttpServletRequest request) {
+        String client = RequestLimitInterceptor.clientOf(request, requestLimitProperties.clientHeader());
+        return client != null || !byAddress ? client : request.getRemoteAddr();
+    }
+}
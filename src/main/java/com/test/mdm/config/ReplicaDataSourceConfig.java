@@ -0,0 +1,82 @@
+package com.test.mdm.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read/write splitting: the application data source hands out the primary for read-write transactions and
+ * {@link ReplicaRoutingDataSource} for read-only ones. Connections are fetched lazily, once the transaction has
+ * marked itself read-only.
+ * <p>
+ * Replaces the auto-configured pool: the primary is bound from {@code spring.datasource} like it, the replica pools
+ * report the same Hikari metrics tagged with their names.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "mdm.datasource.replicas", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    static final String PRIMARY_POOL_NAME = "primary";
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName(PRIMARY_POOL_NAME);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties dataSourceProperties,
+                                                             ReplicaDataSourceProperties replicaProperties,
+                                                             MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (ReplicaDataSourceProperties.Replica replica : replicaProperties.instances()) {
+            replicas.put(replica.name(), replicaDataSource(replica, dataSourceProperties, meterRegistry));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, replicaProperties.maxLag(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+        return dataSource;
+    }
+
+    /**
+     * A replica that is down must not fail the start or hold reads for long, its pool starts without connecting and
+     * gives up quickly, so that the read moves on to the next replica or the primary.
+     */
+    private static HikariDataSource replicaDataSource(ReplicaDataSourceProperties.Replica replica,
+                                                      DataSourceProperties dataSourceProperties,
+                                                      MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(replica.name());
+        config.setJdbcUrl(replica.url());
+        config.setUsername(replica.username() == null ? dataSourceProperties.determineUsername() : replica.username());
+        config.setPassword(replica.password() == null ? dataSourceProperties.determinePassword() : replica.password());
+        config.setMaximumPoolSize(replica.maximumPoolSize());
+        config.setConnectionTimeout(replica.connectionTimeout().toMillis());
+        config.setInitializationFailTimeout(-1);
+        config.setReadOnly(true);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,44 @@
+package com.test.mdm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas serving read-only transactions, see {@link ReplicaRoutingDataSource}.
+ *
+ * @param enabled                 whether read-only transactions go to the replicas
+ * @param instances               replicas, read in turn
+ * @param maxLag                  replay lag above which a replica stops serving reads until it catches up
+ * @param healthCheckInterval     delay between two checks of every replica
+ * @param readYourWritesWindow    time after a write during which the reads of the same client go to the primary,
+ *                                longer than {@code maxLag} plus {@code healthCheckInterval}. Needs authenticated
+ *                                clients or {@code mdm.requests.client-header}
+ * @param readYourWritesByAddress whether clients with neither are told apart by their address instead, only where
+ *                                they reach the service directly: behind a load balancer every client would be pinned
+ *                                to the primary
+ */
+@ConfigurationProperties(prefix = "mdm.datasource.replicas")
+public record ReplicaDataSourceProperties(@DefaultValue("false") boolean enabled,
+                                          @DefaultValue List<Replica> instances,
+                                          @DefaultValue("1s") Duration maxLag,
+                                          @DefaultValue("2s") Duration healthCheckInterval,
+                                          @DefaultValue("5s") Duration readYourWritesWindow,
+                                          @DefaultValue("false") boolean readYourWritesByAddress) {
+
+    /**
+     * @param name              pool name and metric tag of the replica
+     * @param username          the primary's when unset
+     * @param password          the primary's when unset
+     * @param connectionTimeout wait for a connection before the read falls back to another replica or the primary
+     */
+    public record Replica(String name,
+                          String url,
+                          String username,
+                          String password,
+                          @DefaultValue("10") int maximumPoolSize,
+                          @DefaultValue("500ms") Duration connectionTimeout) {
+    }
+}
@@ -0,0 +1,161 @@
+package com.test.mdm.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.test.mdm.util.Constant.REPLICA_DOWN;
+import static com.test.mdm.util.Constant.REPLICA_LAGGING;
+import static com.test.mdm.util.Constant.REPLICA_UP;
+
+/**
+ * Data source of read-only transactions: connections come from the healthy replicas in turn and from the primary
+ * when the thread requires it, no replica is healthy or every healthy replica fails to hand out a connection.
+ * <p>
+ * A replica is healthy while it answers the periodic check and replays the primary's WAL within the maximum lag. A
+ * replica that is not in recovery, like a second standalone instance in development, counts as caught up.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    public static final String READS_METRIC = "mdm.datasource.reads";
+    public static final String LAG_METRIC = "mdm.datasource.replica.lag";
+    public static final String HEALTHY_METRIC = "mdm.datasource.replica.healthy";
+
+    private static final String LAG_QUERY = """
+            SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END
+            """;
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter pinnedReads;
+    private final Counter fallbackReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.maxLag = maxLag;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource, meterRegistry)));
+        this.pinnedReads = meterRegistry.counter(READS_METRIC, "datasource", "primary", "reason", "pinned");
+        this.fallbackReads = meterRegistry.counter(READS_METRIC, "datasource", "primary", "reason", "no_replica");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (DataSourceRouting.isPrimaryRequired()) {
+            pinnedReads.increment();
+            return primary.getConnection();
+        }
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replica.reads.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.down(e);
+            }
+        }
+        fallbackReads.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections are opened with the configured credentials");
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${mdm.datasource.replicas.health-check-interval:2s}")
+    public void checkReplicas() {
+        replicas.forEach(this::check);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private void check(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout((int) Math.max(1, maxLag.toSeconds()));
+            try (ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                replica.lagMillis = Math.round(resultSet.getDouble(1) * 1000);
+            }
+        } catch (SQLException e) {
+            replica.down(e);
+            return;
+        } finally {
+            replica.checked = true;
+        }
+        if (replica.lagMillis > maxLag.toMillis()) {
+            if (replica.healthy) {
+                log.warn(REPLICA_LAGGING, replica.name, replica.lagMillis, maxLag.toMillis());
+            }
+            replica.healthy = false;
+        } else if (!replica.healthy) {
+            log.info(REPLICA_UP, replica.name, replica.lagMillis);
+            replica.healthy = true;
+        }
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final Counter reads;
+        private volatile boolean healthy;
+        private volatile long lagMillis;
+        private volatile boolean checked;
+
+        private Replica(String name, DataSource dataSource, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.reads = meterRegistry.counter(READS_METRIC, "datasource", name, "reason", "replica");
+            Gauge.builder(LAG_METRIC, this, replica -> replica.lagMillis / 1000.0)
+                    .description("Replay lag of the replica at its last check")
+                    .baseUnit("seconds")
+                    .tag("datasource", name)
+                    .register(meterRegistry);
+            Gauge.builder(HEALTHY_METRIC, this, replica -> replica.healthy ? 1 : 0)
+                    .description("Whether the replica serves reads")
+                    .tag("datasource", name)
+                    .register(meterRegistry);
+        }
+
+        private void down(SQLException e) {
+            if (healthy || !checked) {
+                log.warn(REPLICA_DOWN, name, e.getMessage());
+            }
+            healthy = false;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.test.mdm.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.test.mdm.controller.RateLimited;
+import com.test.mdm.controller.RateLimited.EndpointClass;
+import com.test.mdm.exception.ServiceOverloadedException;
+import com.test.mdm.exception.TooManyRequestsException;
+import com.test.mdm.util.TokenBucket;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.sql.DataSource;
+import java.security.Principal;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.test.mdm.util.Constant.SERVICE_OVERLOADED;
+import static com.test.mdm.util.Constant.TOO_MANY_REQUESTS;
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
+/**
+ * Applies the per-client budgets and sheds load in front of {@link RateLimited} handlers. Throttling comes first so
+ * a client over its budget is told to slow down rather than that the service is overloaded.
+ * <p>
+ * A request stays in flight until its last dispatch completes, so streamed lists count while they are written.
+ */
+@Component
+@ConditionalOnWebApplication(type = SERVLET)
+public class RequestLimitInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String THROTTLED_METRIC = "mdm.requests.throttled";
+    public static final String SHED_METRIC = "mdm.requests.shed";
+    public static final String IN_FLIGHT_METRIC = "mdm.requests.in.flight";
+
+    private static final String IN_FLIGHT_ATTRIBUTE = RequestLimitInterceptor.class.getName() + ".inFlight";
+    private static final int MAX_CLIENT_LENGTH = 64;
+
+    private final RequestLimitProperties properties;
+    private final ObjectProvider<DataSource> dataSource;
+    private final Cache<BucketKey, TokenBucket> buckets = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<EndpointClass, Counter> throttled = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> shedOnPool = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> shedOnInFlight = new EnumMap<>(EndpointClass.class);
+
+    public RequestLimitInterceptor(RequestLimitProperties properties, ObjectProvider<DataSource> dataSource,
+                                   MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+        for (EndpointClass endpoint : EndpointClass.values()) {
+            String tag = endpoint.name().toLowerCase();
+            throttled.put(endpoint, meterRegistry.counter(THROTTLED_METRIC, "endpoint", tag));
+            shedOnPool.put(endpoint, meterRegistry.counter(SHED_METRIC, "endpoint", tag, "reason", "pool"));
+            shedOnInFlight.put(endpoint, meterRegistry.counter(SHED_METRIC, "endpoint", tag, "reason", "in_flight"));
+        }
+        meterRegistry.gauge(IN_FLIGHT_METRIC, inFlight);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        RateLimited rateLimited = method.getMethodAnnotation(RateLimited.class);
+        if (rateLimited == null) {
+            return true;
+        }
+        EndpointClass endpoint = rateLimited.value();
+        if (properties.rateLimit().enabled()) {
+            String client = clientOf(request, properties.clientHeader());
+            if (client != null) {
+                throttle(client, endpoint);
+            }
+        }
+        if (properties.shedding().enabled()) {
+            shed(endpoint);
+        }
+        inFlight.incrementAndGet();
+        request.setAttribute(IN_FLIGHT_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(IN_FLIGHT_ATTRIBUTE) != null) {
+            request.removeAttribute(IN_FLIGHT_ATTRIBUTE);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private void throttle(String client, EndpointClass endpoint) {
+        TokenBucket bucket = buckets.get(new BucketKey(client, endpoint), key -> {
+            RequestLimitProperties.Budget budget = budgetOf(endpoint);
+            return new TokenBucket(budget.capacity(), budget.refillPerSecond(), System.nanoTime());
+        });
+        long waitNanos = bucket.tryConsume(System.nanoTime());
+        if (waitNanos > 0) {
+            throttled.get(endpoint).increment();
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+            throw new TooManyRequestsException(
+                    TOO_MANY_REQUESTS.formatted(endpoint.name().toLowerCase(), retryAfter), Duration.ofSeconds(retryAfter));
+        }
+    }
+
+    private void shed(EndpointClass endpoint) {
+        RequestLimitProperties.Shedding shedding = properties.shedding();
+        // lists hold a connection for long, so they give way first and leave room for single reads and writes
+        int divisor = endpoint == EndpointClass.LIST ? 2 : 1;
+        HikariPoolMXBean pool = poolOf(dataSource.getIfAvailable());
+        if (pool != null && pool.getThreadsAwaitingConnection() >= Math.max(1, shedding.maxPoolWaiters() / divisor)) {
+            shedOnPool.get(endpoint).increment();
+            throw overloaded(shedding.retryAfter());
+        }
+        if (inFlight.get() >= Math.max(1, shedding.maxInFlight() / divisor)) {
+            shedOnInFlight.get(endpoint).increment();
+            throw overloaded(shedding.retryAfter());
+        }
+    }
+
+    /**
+     * Identity the client cannot choose: the authenticated principal, else the header set by the gateway. The address
+     * is no identity, behind a load balancer all clients share it.
+     *
+     * @return the client, {@code null} when it has no trusted identity
+     */
+    static String clientOf(HttpServletRequest request, String clientHeader) {
+        Principal principal = request.getUserPrincipal();
+        String client = principal != null ? principal.getName()
+                : clientHeader == null || clientHeader.isBlank() ? null : request.getHeader(clientHeader);
+        if (client == null || client.isBlank()) {
+            return null;
+        }
+        return client.length() > MAX_CLIENT_LENGTH ? client.substring(0, MAX_CLIENT_LENGTH) : client;
+    }
+
+    private RequestLimitProperties.Budget budgetOf(EndpointClass endpoint) {
+        RequestLimitProperties.RateLimit rateLimit = properties.rateLimit();
+        return switch (endpoint) {
+            case LIST -> rateLimit.list();
+            case READ -> rateLimit.read();
+            case WRITE -> rateLimit.write();
+        };
+    }
+
+    /**
+     * The pool of the primary, also behind the data source splitting reads and writes.
+     */
+    private static HikariPoolMXBean poolOf(DataSource dataSource) {
+        try {
+            return dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)
+                    ? dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean()
+                    : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    private static ServiceOverloadedException overloaded(Duration retryAfter) {
+        return new ServiceOverloadedException(SERVICE_OVERLOADED.formatted(retryAfter.toSeconds()), retryAfter);
+    }
+
+    private record BucketKey(String client, EndpointClass endpoint) {
+    }
+}
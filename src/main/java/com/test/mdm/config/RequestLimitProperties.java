@@ -0,0 +1,46 @@
+package com.test.mdm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param clientHeader header identifying the client, set by the gateway in front of the service, which must strip it
+ *                     from incoming requests; without it only authenticated clients are told apart
+ */
+@ConfigurationProperties(prefix = "mdm.requests")
+public record RequestLimitProperties(String clientHeader,
+                                     @DefaultValue RateLimit rateLimit,
+                                     @DefaultValue Shedding shedding) {
+
+    /**
+     * Token buckets per client and endpoint class. Requests of clients without a trusted identity are not counted.
+     */
+    public record RateLimit(@DefaultValue("false") boolean enabled,
+                            @DefaultValue Budget list,
+                            @DefaultValue Budget read,
+                            @DefaultValue Budget write) {
+    }
+
+    /**
+     * @param capacity        requests a client can burst
+     * @param refillPerSecond sustained requests per second of a client
+     */
+    public record Budget(@DefaultValue("100") int capacity,
+                         @DefaultValue("50") double refillPerSecond) {
+    }
+
+    /**
+     * Requests are rejected with 503 while the service is saturated, list requests already at half the thresholds.
+     *
+     * @param maxPoolWaiters threads waiting for a database connection
+     * @param maxInFlight    rate limited requests being handled
+     * @param retryAfter     Retry-After of a shed request
+     */
+    public record Shedding(@DefaultValue("true") boolean enabled,
+                           @DefaultValue("10") int maxPoolWaiters,
+                           @DefaultValue("200") int maxInFlight,
+                           @DefaultValue("1s") Duration retryAfter) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.test.mdm.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the JFR {@code jdk.VirtualThreadPinned} events as the {@code mdm.threads.virtual.pinned} timer. A virtual
+ * thread blocking inside {@code synchronized} or a native frame keeps its carrier thread, and with few carriers
+ * that stalls every other request. Only active with {@code spring.threads.virtual.enabled} on Java 21+.
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMetrics implements MeterBinder, DisposableBean {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final VirtualThreadProperties virtualThreadProperties;
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMetrics(VirtualThreadProperties virtualThreadProperties) {
+        this.virtualThreadProperties = virtualThreadProperties;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Timer pinned = Timer.builder("mdm.threads.virtual.pinned")
+                .description("Virtual threads pinned to their carrier thread while blocked")
+                .register(registry);
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(virtualThreadProperties.pinnedThreshold()).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, event -> {
+            pinned.record(event.getDuration());
+            if (log.isDebugEnabled()) {
+                log.debug("Virtual thread pinned for {} in {}", event.getDuration(), topFrame(event));
+            }
+        });
+        recordingStream.startAsync();
+    }
+
+    @Override
+    public void destroy() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    /**
+     * @return first frame outside the JDK, the one holding the monitor or calling into native code
+     */
+    private static String topFrame(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "unknown";
+    }
+}
@@ -0,0 +1,13 @@
+package com.test.mdm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param pinnedThreshold shortest pinning of a carrier thread recorded by {@link VirtualThreadPinningMetrics}
+ */
+@ConfigurationProperties(prefix = "mdm.threads.virtual")
+public record VirtualThreadProperties(@DefaultValue("20ms") Duration pinnedThreshold) {
+}
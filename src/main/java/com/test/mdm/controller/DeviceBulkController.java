@@ -0,0 +1,81 @@
+package com.test.mdm.controller;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.mdm.dto.BulkDeviceResultDto;
+import com.test.mdm.dto.BulkStatusJobDto;
+import com.test.mdm.dto.request.BulkMode;
+import com.test.mdm.dto.request.BulkStatusRequest;
+import com.test.mdm.dto.request.DeviceRequest;
+import com.test.mdm.service.DeviceBulkService;
+import com.test.mdm.service.DeviceBulkStatusService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
+@RestController
+@ConditionalOnWebApplication(type = SERVLET)
+@RequestMapping(path = "/devices/bulk")
+@RequiredArgsConstructor
+public class DeviceBulkController {
+
+    private final DeviceBulkService deviceBulkService;
+    private final DeviceBulkStatusService deviceBulkStatusService;
+    private final ObjectMapper objectMapper;
+
+    @Operation(summary = "Create devices in bulk",
+            description = "Creates or upserts devices from a JSON array or newline delimited JSON body.")
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true, content = {
+            @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = DeviceRequest.class))),
+            @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = DeviceRequest.class))})
+    @ApiResponse(responseCode = "200", description = "Per device report",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkDeviceResultDto.class)))
+    @ApiResponse(responseCode = "400", description = "Malformed request body")
+    @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BulkDeviceResultDto ingestDevices(
+            @Parameter(description = "Whether existing deviceIds are skipped or updated") @RequestParam(defaultValue = "CREATE") BulkMode mode,
+            @Parameter(hidden = true) InputStream body) throws IOException {
+        try (MappingIterator<DeviceRequest> requests = objectMapper.readerFor(DeviceRequest.class).readValues(body)) {
+            return deviceBulkService.ingestDevices(requests, mode);
+        }
+    }
+
+    @Operation(summary = "Update status of devices in bulk",
+            description = "Starts changing the status of the devices selected by ids, deviceIds or a filter.")
+    @ApiResponse(responseCode = "202", description = "Job started",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkStatusJobDto.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid request data")
+    @PostMapping(path = "/status")
+    public ResponseEntity<BulkStatusJobDto> updateDevicesStatus(
+            @Parameter(description = "Bulk status request", required = true) @Valid @RequestBody BulkStatusRequest bulkStatusRequest) {
+        BulkStatusJobDto job = deviceBulkStatusService.submit(bulkStatusRequest);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{jobId}").build(job.getJobId()))
+                .body(job);
+    }
+
+    @Operation(summary = "Get bulk status job", description = "Fetches the progress of a bulk status change.")
+    @ApiResponse(responseCode = "200", description = "Job found",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkStatusJobDto.class)))
+    @ApiResponse(responseCode = "404", description = "Job not found")
+    @GetMapping(path = "/status/{jobId}")
+    public BulkStatusJobDto getDevicesStatusJob(@Parameter(description = "Job ID", required = true) @PathVariable UUID jobId) {
+        return deviceBulkStatusService.getJob(jobId);
+    }
+}
@@ -0,0 +1,56 @@
+package com.test.mdm.controller;
+
+import com.test.mdm.dto.DeviceChangeDto;
+import com.test.mdm.dto.DeviceChangePageDto;
+import com.test.mdm.service.DeviceChangeFeed;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
+@RestController
+@ConditionalOnWebApplication(type = SERVLET)
+@RequestMapping(path = "/devices/changes")
+@RequiredArgsConstructor
+public class DeviceChangeController {
+
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    private final DeviceChangeFeed deviceChangeFeed;
+
+    @Operation(summary = "Get device changes",
+            description = "Fetches changes after the offset, waiting for the first one up to the given time (long-poll).")
+    @ApiResponse(responseCode = "200", description = "Changes, empty when nothing changed while waiting",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = DeviceChangePageDto.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid offset")
+    @GetMapping
+    public DeferredResult<DeviceChangePageDto> getChanges(
+            @Parameter(description = "nextOffset of the previous response, from the oldest retained change when absent") @RequestParam(required = false) String offset,
+            @Parameter(description = "Maximum number of changes") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Longest wait for a change in seconds") @RequestParam(defaultValue = "0") long wait) {
+        return deviceChangeFeed.getChanges(offset, limit, Duration.ofSeconds(wait));
+    }
+
+    @Operation(summary = "Stream device changes",
+            description = "Streams changes after the offset as server-sent events, the event id is the change offset.")
+    @ApiResponse(responseCode = "200", description = "Stream of changes",
+            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = DeviceChangeDto.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid offset")
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @Parameter(description = "Offset to resume after, from the oldest retained change when absent") @RequestParam(required = false) String offset,
+            @Parameter(description = "Id of the last received event, set by reconnecting clients") @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+        return deviceChangeFeed.subscribe(lastEventId != null ? lastEventId : offset);
+    }
+}
@@ -1,59 +1,173 @@
 package com.test.mdm.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.mdm.controller.RateLimited.EndpointClass;
+import com.test.mdm.dto.DeviceBatchDto;
 import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.DevicePageDto;
+import com.test.mdm.dto.DeviceStatusDto;
+import com.test.mdm.dto.request.DeviceBatchRequest;
+import com.test.mdm.dto.request.DeviceFilter;
 import com.test.mdm.dto.request.DeviceRequest;
+import com.test.mdm.dto.request.DeviceSortField;
 import com.test.mdm.dto.request.UpdateDeviceStatusRequest;
 import com.test.mdm.service.DeviceService;
+import com.test.mdm.service.DeviceStatusCoalescer;
+import com.test.mdm.service.DeviceStatusIndex;
+import com.test.mdm.util.DeviceETag;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
+import static com.test.mdm.config.WebConfig.APPLICATION_SMILE_VALUE;
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
 @RestController
+@ConditionalOnWebApplication(type = SERVLET)
 @RequestMapping(path = "/devices")
 @RequiredArgsConstructor
 @Validated
 public class DeviceController {
 
     private final DeviceService deviceService;
+    private final DeviceStatusCoalescer deviceStatusCoalescer;
+    private final DeviceStatusIndex deviceStatusIndex;
+    private final ObjectMapper objectMapper;
+    private final List<AbstractJackson2HttpMessageConverter> messageConverters;
 
-    @Operation(summary = "Get all devices", description = "Fetches all available devices.")
-    @ApiResponse(responseCode = "200", description = "Successful retrieval",
-            content = @Content(mediaType = "application/json", schema = @Schema(implementation = DeviceDto.class)))
+    @Operation(summary = "Get all devices",
+            description = "Streams all available devices as a JSON, CBOR or Smile array, as accepted by the client.")
+    @ApiResponse(responseCode = "200", description = "Successful retrieval", content = {
+            @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = DeviceDto.class))),
+            @Content(mediaType = MediaType.APPLICATION_CBOR_VALUE, array = @ArraySchema(schema = @Schema(implementation = DeviceDto.class))),
+            @Content(mediaType = APPLICATION_SMILE_VALUE, array = @ArraySchema(schema = @Schema(implementation = DeviceDto.class)))})
+    @RateLimited(EndpointClass.LIST)
     @GetMapping
-    public List<DeviceDto> getDevices() {
-        return deviceService.getDevices();
+    public ResponseEntity<StreamingResponseBody> getDevices(
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        AbstractJackson2HttpMessageConverter converter = negotiate(accept);
+        ObjectMapper mapper = converter == null ? objectMapper : converter.getObjectMapper();
+        MediaType contentType = converter == null ? MediaType.APPLICATION_JSON : converter.getSupportedMediaTypes().get(0);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = mapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                deviceService.streamDevices(device -> writeDevice(generator, device));
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(contentType).body(body);
+    }
+
+    @Operation(summary = "Stream all devices", description = "Streams all available devices as newline delimited JSON.")
+    @ApiResponse(responseCode = "200", description = "Successful retrieval",
+            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = DeviceDto.class)))
+    @RateLimited(EndpointClass.LIST)
+    @GetMapping(path = "/stream")
+    public ResponseEntity<StreamingResponseBody> streamDevices() {
+        StreamingResponseBody body = outputStream ->
+                deviceService.streamDevices(device -> writeDeviceLine(outputStream, device));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(summary = "Get page of devices", description = "Fetches devices ordered by id, starting after the given cursor.")
+    @ApiResponse(responseCode = "200", description = "Successful retrieval",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = DevicePageDto.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    @RateLimited(EndpointClass.READ)
+    @GetMapping(path = "/page")
+    public DevicePageDto getDevicesPage(
+            @Parameter(description = "Cursor returned by the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer size) {
+        return deviceService.getDevicesPage(cursor, size);
+    }
+
+    @Operation(summary = "Search devices", description = "Fetches devices matching the filter, sorted and paged by keyset.")
+    @ApiResponse(responseCode = "200", description = "Successful retrieval",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = DevicePageDto.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    @RateLimited(EndpointClass.READ)
+    @GetMapping(path = "/search")
+    public DevicePageDto searchDevices(
+            @ParameterObject DeviceFilter filter,
+            @Parameter(description = "Sort field") @RequestParam(defaultValue = "ID") DeviceSortField sort,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @Parameter(description = "Cursor returned by the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer size) {
+        return deviceService.searchDevices(filter, sort, direction, cursor, size);
     }
 
     @Operation(summary = "Get device by ID", description = "Fetches a device using its unique identifier.")
     @ApiResponse(responseCode = "200", description = "Device found",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = DeviceDto.class)))
+    @ApiResponse(responseCode = "304", description = "Device matches If-None-Match")
     @ApiResponse(responseCode = "404", description = "Device not found")
+    @RateLimited(EndpointClass.READ)
     @GetMapping(path = "/{id}")
-    public DeviceDto getDeviceById(@Parameter(description = "Device ID", required = true) @PathVariable Long id) {
-        return deviceService.getDeviceById(id);
+    public ResponseEntity<DeviceDto> getDeviceById(@Parameter(description = "Device ID", required = true) @PathVariable Long id) {
+        return withETag(deviceService.getDeviceById(id));
     }
 
     @Operation(summary = "Get device by deviceId", description = "Fetches a device using its unique device identifier.")
     @ApiResponse(responseCode = "200", description = "Device found",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = DeviceDto.class)))
+    @ApiResponse(responseCode = "304", description = "Device matches If-None-Match")
     @ApiResponse(responseCode = "404", description = "Device not found")
+    @RateLimited(EndpointClass.READ)
     @GetMapping(path = "/deviceId/{deviceId}")
-    public DeviceDto getDevicesByDeviceId(@Parameter(description = "Device ID", required = true) @PathVariable Long deviceId) {
-        return deviceService.getDevicesByDeviceId(deviceId);
+    public ResponseEntity<DeviceDto> getDevicesByDeviceId(@Parameter(description = "Device ID", required = true) @PathVariable Long deviceId) {
+        return withETag(deviceService.getDevicesByDeviceId(deviceId));
+    }
+
+    @Operation(summary = "Get device status by deviceId",
+            description = "Checks whether a device is active or blocked, answered from the in-memory status index.")
+    @ApiResponse(responseCode = "200", description = "Device found",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = DeviceStatusDto.class)))
+    @ApiResponse(responseCode = "404", description = "Device not found")
+    @RateLimited(EndpointClass.READ)
+    @GetMapping(path = "/deviceId/{deviceId}/status")
+    public DeviceStatusDto getDeviceStatus(@Parameter(description = "Device ID", required = true) @PathVariable Long deviceId) {
+        return deviceStatusIndex.getDeviceStatus(deviceId);
+    }
+
+    @Operation(summary = "Get devices by IDs and deviceIds",
+            description = "Fetches many devices in one request, keys without a device are reported instead of failing.")
+    @ApiResponse(responseCode = "200", description = "Successful retrieval",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = DeviceBatchDto.class)))
+    @ApiResponse(responseCode = "400", description = "No keys or more than 1000 keys")
+    @RateLimited(EndpointClass.READ)
+    @PostMapping(path = "/batch")
+    public DeviceBatchDto getDevicesBatch(
+            @Parameter(description = "Device batch request", required = true) @Valid @RequestBody DeviceBatchRequest deviceBatchRequest) {
+        return deviceService.getDevicesBatch(deviceBatchRequest);
     }
 
     @Operation(summary = "Create a new device", description = "Creates a new device entry in the system.")
     @ApiResponse(responseCode = "201", description = "Device successfully created",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = DeviceDto.class)))
     @ApiResponse(responseCode = "400", description = "Invalid request data")
+    @RateLimited(EndpointClass.WRITE)
     @PostMapping
     public DeviceDto createDevice(
             @Parameter(description = "Device request", required = true) @Valid @RequestBody DeviceRequest deviceRequest) {
@@ -64,29 +178,97 @@ public class DeviceController {
     @ApiResponse(responseCode = "200", description = "Device successfully updated",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = DeviceDto.class)))
     @ApiResponse(responseCode = "404", description = "Device not found")
+    @ApiResponse(responseCode = "409", description = "Device modified concurrently")
+    @ApiResponse(responseCode = "412", description = "Device does not match If-Match")
+    @RateLimited(EndpointClass.WRITE)
     @PutMapping(path = "/{id}")
-    public DeviceDto updateDevice(
+    public ResponseEntity<DeviceDto> updateDevice(
             @Parameter(description = "Device ID", required = true) @PathVariable Long id,
+            @Parameter(description = "Entity tag the device must match") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Parameter(description = "Device request", required = true) @Valid @RequestBody DeviceRequest updateDeviceRequest) {
-        return deviceService.updateDevice(id, updateDeviceRequest);
+        return withETag(deviceService.updateDevice(id, updateDeviceRequest, DeviceETag.expectedVersion(id, ifMatch)));
     }
 
     @Operation(summary = "Update device status", description = "Updates only the status of an existing device.")
     @ApiResponse(responseCode = "200", description = "Device status successfully updated",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = DeviceDto.class)))
+    @ApiResponse(responseCode = "202", description = "Device status buffered, written behind (asynchronous status coalescing)")
     @ApiResponse(responseCode = "404", description = "Device not found")
+    @ApiResponse(responseCode = "412", description = "Device does not match If-Match")
+    @RateLimited(EndpointClass.WRITE)
     @PatchMapping(path = "/{id}")
-    public DeviceDto updateDeviceStatus(
+    public ResponseEntity<DeviceDto> updateDeviceStatus(
             @Parameter(description = "Device ID", required = true) @PathVariable Long id,
+            @Parameter(description = "Entity tag the device must match") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Parameter(description = "Device status request", required = true) @Valid @RequestBody UpdateDeviceStatusRequest updateDeviceStatusRequest) {
-        return deviceService.updateDeviceStatus(id, updateDeviceStatusRequest);
+        Long expectedVersion = DeviceETag.expectedVersion(id, ifMatch);
+        if (expectedVersion == null && deviceStatusCoalescer.isEnabled()) {
+            DeviceDto device = deviceStatusCoalescer.updateDeviceStatus(id, updateDeviceStatusRequest);
+            return device == null ? ResponseEntity.accepted().build() : withETag(device);
+        }
+        return withETag(deviceService.updateDeviceStatus(id, updateDeviceStatusRequest, expectedVersion));
     }
 
     @Operation(summary = "Delete device", description = "Deletes a device from the system.")
     @ApiResponse(responseCode = "204", description = "Device successfully deleted")
     @ApiResponse(responseCode = "404", description = "Device not found")
+    @ApiResponse(responseCode = "412", description = "Device does not match If-Match")
+    @RateLimited(EndpointClass.WRITE)
     @DeleteMapping(path = "/{id}")
-    public void deleteDevice(@Parameter(description = "Device ID", required = true) @PathVariable Long id) {
-        deviceService.deleteDevice(id);
+    public void deleteDevice(
+            @Parameter(description = "Device ID", required = true) @PathVariable Long id,
+            @Parameter(description = "Entity tag the device must match") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        deviceService.deleteDevice(id, DeviceETag.expectedVersion(id, ifMatch));
+    }
+
+    /**
+     * ETag of the device version, for reads as well as for the devices returned by PUT and PATCH. For GET the ETag is
+     * checked against If-None-Match before writing, a match is a 304 without serializing the device.
+     */
+    private ResponseEntity<DeviceDto> withETag(DeviceDto device) {
+        return ResponseEntity.ok().eTag(DeviceETag.of(device)).body(device);
+    }
+
+    /**
+     * The Jackson converter of the most specific accepted binary type, null for JSON. Wildcards and types no
+     * converter supports are answered with JSON, as before binary formats were offered.
+     */
+    private AbstractJackson2HttpMessageConverter negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.isWildcardType() || mediaType.isWildcardSubtype() || mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            if (MediaType.APPLICATION_JSON.isCompatibleWith(mediaType)) {
+                return null;
+            }
+            for (AbstractJackson2HttpMessageConverter converter : messageConverters) {
+                if (converter.getSupportedMediaTypes().get(0).isCompatibleWith(mediaType)) {
+                    return converter;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void writeDevice(JsonGenerator generator, DeviceDto device) {
+        try {
+            generator.writeObject(device);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeDeviceLine(OutputStream outputStream, DeviceDto device) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(device));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
-}
\ No newline at end of file
+}
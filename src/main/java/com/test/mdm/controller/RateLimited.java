@@ -0,0 +1,28 @@
+package com.test.mdm.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Handler counted against the client's budget of its endpoint class and shed while the service is saturated.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+
+    EndpointClass value();
+
+    enum EndpointClass {
+        /**
+         * Full lists, every request reads the whole table.
+         */
+        LIST,
+        /**
+         * Single device reads, mostly served from the cache, and pages bounded by the maximum page size.
+         */
+        READ,
+        WRITE
+    }
+}
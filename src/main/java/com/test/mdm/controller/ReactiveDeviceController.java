@@ -0,0 +1,128 @@
+package com.test.mdm.controller;
+
+import com.test.mdm.dto.DeviceBatchDto;
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.DevicePageDto;
+import com.test.mdm.dto.DeviceStatusDto;
+import com.test.mdm.dto.request.DeviceBatchRequest;
+import com.test.mdm.dto.request.DeviceFilter;
+import com.test.mdm.dto.request.DeviceRequest;
+import com.test.mdm.dto.request.DeviceSortField;
+import com.test.mdm.dto.request.UpdateDeviceStatusRequest;
+import com.test.mdm.service.ReactiveDeviceService;
+import com.test.mdm.util.DeviceETag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+
+/**
+ * The device endpoints of {@link DeviceController} on WebFlux, with the same paths, request validation, bodies and
+ * status codes, served when the application runs with the {@code reactive} profile. Lists are JSON or newline
+ * delimited JSON only.
+ */
+@RestController
+@ConditionalOnWebApplication(type = REACTIVE)
+@RequestMapping(path = "/devices")
+@RequiredArgsConstructor
+@Validated
+public class ReactiveDeviceController {
+
+    private final ReactiveDeviceService reactiveDeviceService;
+
+    /**
+     * Written as the rows arrive and only as fast as the client reads, see
+     * {@link com.test.mdm.repository.DeviceR2dbcRepository#streamAllDtos()}.
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<DeviceDto> getDevices() {
+        return reactiveDeviceService.streamDevices();
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<DeviceDto> streamDevices() {
+        return reactiveDeviceService.streamDevices();
+    }
+
+    @GetMapping(path = "/page")
+    public Mono<DevicePageDto> getDevicesPage(@RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer size) {
+        return reactiveDeviceService.getDevicesPage(cursor, size);
+    }
+
+    @GetMapping(path = "/search")
+    public Mono<DevicePageDto> searchDevices(DeviceFilter filter,
+                                             @RequestParam(defaultValue = "ID") DeviceSortField sort,
+                                             @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(required = false) Integer size) {
+        return reactiveDeviceService.searchDevices(filter, sort, direction, cursor, size);
+    }
+
+    @GetMapping(path = "/{id}")
+    public Mono<ResponseEntity<DeviceDto>> getDeviceById(@PathVariable Long id) {
+        return reactiveDeviceService.getDeviceById(id).map(this::withETag);
+    }
+
+    @GetMapping(path = "/deviceId/{deviceId}")
+    public Mono<ResponseEntity<DeviceDto>> getDevicesByDeviceId(@PathVariable Long deviceId) {
+        return reactiveDeviceService.getDevicesByDeviceId(deviceId).map(this::withETag);
+    }
+
+    @GetMapping(path = "/deviceId/{deviceId}/status")
+    public Mono<DeviceStatusDto> getDeviceStatus(@PathVariable Long deviceId) {
+        return reactiveDeviceService.getDeviceStatus(deviceId);
+    }
+
+    @PostMapping(path = "/batch")
+    public Mono<DeviceBatchDto> getDevicesBatch(@Valid @RequestBody DeviceBatchRequest deviceBatchRequest) {
+        return reactiveDeviceService.getDevicesBatch(deviceBatchRequest);
+    }
+
+    @PostMapping
+    public Mono<DeviceDto> createDevice(@Valid @RequestBody DeviceRequest deviceRequest) {
+        return reactiveDeviceService.createDevice(deviceRequest);
+    }
+
+    @PutMapping(path = "/{id}")
+    public Mono<ResponseEntity<DeviceDto>> updateDevice(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody DeviceRequest updateDeviceRequest) {
+        return reactiveDeviceService.updateDevice(id, updateDeviceRequest, DeviceETag.expectedVersion(id, ifMatch))
+                .map(this::withETag);
+    }
+
+    @PatchMapping(path = "/{id}")
+    public Mono<ResponseEntity<DeviceDto>> updateDeviceStatus(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody UpdateDeviceStatusRequest updateDeviceStatusRequest) {
+        Long expectedVersion = DeviceETag.expectedVersion(id, ifMatch);
+        return reactiveDeviceService.updateDeviceStatus(id, updateDeviceStatusRequest, expectedVersion)
+                .map(this::withETag)
+                .defaultIfEmpty(ResponseEntity.accepted().build());
+    }
+
+    @DeleteMapping(path = "/{id}")
+    public Mono<Void> deleteDevice(@PathVariable Long id,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return reactiveDeviceService.deleteDevice(id, DeviceETag.expectedVersion(id, ifMatch));
+    }
+
+    /**
+     * For GET the ETag is checked against If-None-Match before writing, a match is a 304 without a body.
+     */
+    private ResponseEntity<DeviceDto> withETag(DeviceDto device) {
+        return ResponseEntity.ok().eTag(DeviceETag.of(device)).body(device);
+    }
+}
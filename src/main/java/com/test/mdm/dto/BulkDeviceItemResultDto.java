@@ -0,0 +1,32 @@
+package com.test.mdm.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Outcome of a single device of a bulk request.")
+public class BulkDeviceItemResultDto {
+
+    @Schema(description = "Position of the device in the request body.", example = "0")
+    private int index;
+
+    @Schema(description = "Device ID assigned by the user.", example = "101")
+    private Long deviceId;
+
+    @Schema(description = "Unique identifier of the stored device.", example = "1")
+    private Long id;
+
+    @Schema(description = "Outcome of the device.", example = "CREATED")
+    private BulkItemResult result;
+
+    @Schema(description = "Validation errors by field.")
+    private Map<String, String> errors;
+}
@@ -0,0 +1,33 @@
+package com.test.mdm.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Report of a bulk device request.")
+public class BulkDeviceResultDto {
+
+    @Schema(description = "Number of devices in the request.", example = "1000")
+    private int total;
+
+    @Schema(description = "Number of created devices.", example = "990")
+    private int created;
+
+    @Schema(description = "Number of updated devices.", example = "0")
+    private int updated;
+
+    @Schema(description = "Number of rejected devices.", example = "10")
+    private int failed;
+
+    @Schema(description = "Write throughput of the request.", example = "25000.0")
+    private double rowsPerSecond;
+
+    @Schema(description = "Outcome of every device in request order.")
+    private List<BulkDeviceItemResultDto> items;
+}
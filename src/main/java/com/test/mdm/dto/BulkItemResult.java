@@ -0,0 +1,8 @@
+package com.test.mdm.dto;
+
+public enum BulkItemResult {
+    CREATED,
+    UPDATED,
+    DUPLICATE,
+    INVALID
+}
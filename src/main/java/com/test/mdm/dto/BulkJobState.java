@@ -0,0 +1,7 @@
+package com.test.mdm.dto;
+
+public enum BulkJobState {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
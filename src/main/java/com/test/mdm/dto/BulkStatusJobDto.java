@@ -0,0 +1,43 @@
+package com.test.mdm.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.test.mdm.entity.Status;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Progress of a bulk status change.")
+public class BulkStatusJobDto {
+
+    @Schema(description = "Identifier of the job.", example = "3f0c1d2e-5b6a-4c7d-8e9f-0a1b2c3d4e5f")
+    private UUID jobId;
+
+    @Schema(description = "State of the job.", example = "RUNNING")
+    private BulkJobState state;
+
+    @Schema(description = "Status the devices are changed to.", example = "BLOCKED")
+    private Status status;
+
+    @Schema(description = "Number of devices changed so far.", example = "25000")
+    private long affected;
+
+    @Schema(description = "Number of committed chunks.", example = "25")
+    private long chunks;
+
+    @Schema(description = "Timestamp of when the job was started.", example = "2025-03-14T12:00:00")
+    private LocalDateTime startedAt;
+
+    @Schema(description = "Timestamp of when the job was finished.", example = "2025-03-14T12:00:05")
+    private LocalDateTime finishedAt;
+
+    @Schema(description = "Reason of the failure.")
+    private String error;
+}
@@ -0,0 +1,24 @@
+package com.test.mdm.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Devices found for a batch request and the keys without a device.")
+public class DeviceBatchDto {
+
+    @Schema(description = "Found devices in request order, ids first, every device once.")
+    private List<DeviceDto> items;
+
+    @Schema(description = "Requested ids without a device.", example = "[3]")
+    private List<Long> missingIds;
+
+    @Schema(description = "Requested deviceIds without a device.", example = "[103]")
+    private List<Long> missingDeviceIds;
+}
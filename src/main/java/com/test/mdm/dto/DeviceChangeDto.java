@@ -0,0 +1,34 @@
+package com.test.mdm.dto;
+
+import com.test.mdm.event.ChangeType;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Change of a device in the change feed.")
+public class DeviceChangeDto {
+
+    @Schema(description = "Offset of the change, resume after it by passing it as offset.", example = "7611-42")
+    private String offset;
+
+    @Schema(description = "Kind of the change.", example = "STATUS_UPDATED")
+    private ChangeType type;
+
+    @Schema(description = "Unique identifier of the changed device.", example = "1")
+    private Long id;
+
+    @Schema(description = "Device ID of the changed device at the time of the change.", example = "101")
+    private Long deviceId;
+
+    @Schema(description = "Timestamp of the change.", example = "2025-03-14T12:00:00")
+    private LocalDateTime changedAt;
+
+    @Schema(description = "Current state of the device, absent when it has been deleted since.")
+    private DeviceDto device;
+}
@@ -0,0 +1,21 @@
+package com.test.mdm.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Changes of devices after an offset.")
+public class DeviceChangePageDto {
+
+    @Schema(description = "Changes in feed order, empty when nothing changed before the wait timed out.")
+    private List<DeviceChangeDto> items;
+
+    @Schema(description = "Offset to resume from, the last returned change or the requested offset.", example = "7611-42")
+    private String nextOffset;
+}
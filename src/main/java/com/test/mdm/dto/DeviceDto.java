@@ -28,4 +28,7 @@ public class DeviceDto {
 
     @Schema(description = "Timestamp of when the device was created.", example = "2025-03-14T12:00:00")
     private LocalDateTime createdAt;
+
+    @Schema(description = "Version of the device, incremented by every change.", example = "0")
+    private Long version;
 }
@@ -0,0 +1,21 @@
+package com.test.mdm.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Page of devices ordered by id.")
+public class DevicePageDto {
+
+    @Schema(description = "Devices of the current page.")
+    private List<DeviceDto> items;
+
+    @Schema(description = "Opaque cursor of the next page, absent on the last page.", example = "MTAw")
+    private String nextCursor;
+}
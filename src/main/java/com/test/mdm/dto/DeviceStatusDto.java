@@ -0,0 +1,20 @@
+package com.test.mdm.dto;
+
+import com.test.mdm.entity.Status;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Current status of a device.")
+public class DeviceStatusDto {
+
+    @Schema(description = "Device ID assigned by the user.", example = "101")
+    private Long deviceId;
+
+    @Schema(description = "Current status of the device.", example = "BLOCKED")
+    private Status status;
+}
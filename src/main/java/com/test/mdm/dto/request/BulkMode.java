@@ -0,0 +1,6 @@
+package com.test.mdm.dto.request;
+
+public enum BulkMode {
+    CREATE,
+    UPSERT
+}
@@ -0,0 +1,46 @@
+package com.test.mdm.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.test.mdm.entity.Status;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Request DTO for changing the status of many devices.")
+public class BulkStatusRequest {
+
+    public static final int MAX_KEYS = 100_000;
+
+    @Schema(description = "New status of the devices.", example = "BLOCKED", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull(message = "Status is required")
+    private Status status;
+
+    @Schema(description = "Unique identifiers of the devices.", example = "[1, 2]")
+    @Size(max = MAX_KEYS, message = "At most 100000 ids are allowed")
+    private List<Long> ids;
+
+    @Schema(description = "Device IDs assigned by the user.", example = "[101, 102]")
+    @Size(max = MAX_KEYS, message = "At most 100000 deviceIds are allowed")
+    private List<Long> deviceIds;
+
+    @Schema(description = "Filter selecting the devices.")
+    @Valid
+    private DeviceFilter filter;
+
+    @JsonIgnore
+    @AssertTrue(message = "One of ids, deviceIds or a filter with at least one condition is required")
+    public boolean isSelectionPresent() {
+        return (ids != null && !ids.isEmpty()) || (deviceIds != null && !deviceIds.isEmpty())
+                || (filter != null && filter.hasConditions());
+    }
+}
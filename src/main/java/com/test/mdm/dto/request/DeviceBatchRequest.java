@@ -0,0 +1,41 @@
+package com.test.mdm.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.AssertTrue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Request DTO for fetching many devices at once.")
+public class DeviceBatchRequest {
+
+    public static final int MAX_KEYS = 1000;
+
+    @Schema(description = "Unique identifiers of the devices.", example = "[1, 2]")
+    private List<Long> ids;
+
+    @Schema(description = "Device IDs assigned by the user.", example = "[101, 102]")
+    private List<Long> deviceIds;
+
+    @JsonIgnore
+    @AssertTrue(message = "One of ids or deviceIds is required")
+    public boolean isKeyPresent() {
+        return size(ids) + size(deviceIds) > 0;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "At most 1000 ids and deviceIds are allowed")
+    public boolean isWithinLimit() {
+        return size(ids) + size(deviceIds) <= MAX_KEYS;
+    }
+
+    private static int size(List<Long> keys) {
+        return keys == null ? 0 : keys.size();
+    }
+}
@@ -0,0 +1,45 @@
+package com.test.mdm.dto.request;
+
+import com.test.mdm.entity.Status;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Device filter, all given conditions must match.")
+public class DeviceFilter {
+
+    @Schema(description = "Current status of the device.", example = "ACTIVE")
+    private Status status;
+
+    @Schema(description = "Prefix of the device name, case sensitive.", example = "Device")
+    private String deviceNamePrefix;
+
+    @Schema(description = "Part of the device name, case insensitive.", example = "vice")
+    private String deviceNameContains;
+
+    @Schema(description = "Devices created at or after this timestamp.", example = "2025-03-14T00:00:00")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+
+    @Schema(description = "Devices created before this timestamp.", example = "2025-03-15T00:00:00")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+
+    /**
+     * @return whether any condition is given, an empty filter matches every device
+     */
+    public boolean hasConditions() {
+        return status != null
+                || deviceNamePrefix != null && !deviceNamePrefix.isEmpty()
+                || deviceNameContains != null && !deviceNameContains.isEmpty()
+                || createdFrom != null
+                || createdTo != null;
+    }
+}
@@ -0,0 +1,27 @@
+package com.test.mdm.dto.request;
+
+import com.test.mdm.dto.DeviceDto;
+
+import java.util.function.Function;
+
+public enum DeviceSortField {
+    ID("id", DeviceDto::getId),
+    DEVICE_NAME("device_name", DeviceDto::getDeviceName),
+    CREATED_AT("created_at", DeviceDto::getCreatedAt);
+
+    private final String column;
+    private final Function<DeviceDto, Object> value;
+
+    DeviceSortField(String column, Function<DeviceDto, Object> value) {
+        this.column = column;
+        this.value = value;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Object getValue(DeviceDto device) {
+        return value.apply(device);
+    }
+}
@@ -6,6 +6,10 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDateTime;
 
@@ -14,17 +18,25 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Entity
 @Table(name = "device")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = DeviceEntity.CACHE_REGION)
+@NaturalIdCache(region = DeviceEntity.NATURAL_ID_CACHE_REGION)
 public class DeviceEntity {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+    public static final String CACHE_REGION = "device";
+    public static final String NATURAL_ID_CACHE_REGION = "device-natural-id";
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "device_id_generator")
     @SequenceGenerator(
             name = "device_id_generator",
             sequenceName = "device_id_seq",
-            allocationSize = 1)
+            allocationSize = ID_ALLOCATION_SIZE)
     @Column(name = "id", updatable = false, insertable = false)
     private Long id;
 
+    @NaturalId(mutable = true)
     @Column(name = "device_id")
     private Long deviceId;
 
@@ -35,10 +47,21 @@ public class DeviceEntity {
     @Enumerated(EnumType.STRING)
     private Status status;
 
-    @Column(name = "created_at")
+    @Column(name = "created_at", updatable = false)
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss Z")
     private LocalDateTime createdAt;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    @PrePersist
+    void onPersist() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
     public  DeviceDto toDto() {
         DeviceDto deviceDto = new DeviceDto();
         deviceDto.setId(getId());
@@ -46,6 +69,7 @@ public class DeviceEntity {
         deviceDto.setDeviceName(getDeviceName());
         deviceDto.setStatus(getStatus());
         deviceDto.setCreatedAt(getCreatedAt());
+        deviceDto.setVersion(getVersion());
         return deviceDto;
     }
 }
@@ -0,0 +1,8 @@
+package com.test.mdm.event;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    STATUS_UPDATED,
+    DELETED
+}
@@ -0,0 +1,13 @@
+package com.test.mdm.event;
+
+/**
+ * Published inside the transaction that changed a device.
+ *
+ * @param previousDeviceId deviceId before the change when it was changed, otherwise {@code null}
+ */
+public record DeviceChangedEvent(ChangeType type, Long id, Long deviceId, Long previousDeviceId) {
+
+    public DeviceChangedEvent(ChangeType type, Long id, Long deviceId) {
+        this(type, id, deviceId, null);
+    }
+}
@@ -0,0 +1,14 @@
+package com.test.mdm.event;
+
+/**
+ * Carries device changes to the other instances of the service, so that they drop what they cached.
+ */
+public interface DeviceInvalidationBus {
+
+    /**
+     * Announces a change made in the current transaction, it is delivered only if the transaction commits.
+     */
+    void publish(DeviceChangedEvent event);
+
+    void subscribe(DeviceInvalidationListener listener);
+}
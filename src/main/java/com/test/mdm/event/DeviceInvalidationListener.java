@@ -0,0 +1,16 @@
+package com.test.mdm.event;
+
+import java.util.List;
+
+public interface DeviceInvalidationListener {
+
+    /**
+     * Changes committed by another instance.
+     */
+    void onRemoteChanges(List<DeviceChangedEvent> changes);
+
+    /**
+     * Changes of other instances may have been missed, e.g. while the bus was reconnecting.
+     */
+    void onChangesLost();
+}
@@ -0,0 +1,8 @@
+package com.test.mdm.exception;
+
+public class InvalidCursorException extends DeviceException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
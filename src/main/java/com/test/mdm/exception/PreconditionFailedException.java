@@ -0,0 +1,8 @@
+package com.test.mdm.exception;
+
+public class PreconditionFailedException extends DeviceException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,106 @@
+package com.test.mdm.repository;
+
+import com.test.mdm.dto.BulkJobState;
+import com.test.mdm.dto.BulkStatusJobDto;
+import com.test.mdm.entity.Status;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Bulk status jobs and their progress, shared by every instance so that a job can be followed from any of them and
+ * outlives the instance that ran it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BulkStatusJobRepository {
+
+    private static final String INSERT_JOB = """
+            INSERT INTO bulk_status_job (job_id, state, status, started_at)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    private static final String UPDATE_PROGRESS = """
+            UPDATE bulk_status_job
+            SET affected = affected + ?, chunks = chunks + 1, updated_at = CURRENT_TIMESTAMP
+            WHERE job_id = ?
+            """;
+
+    private static final String UPDATE_STATE = """
+            UPDATE bulk_status_job
+            SET state = ?, error = ?, finished_at = ?, updated_at = CURRENT_TIMESTAMP
+            WHERE job_id = ? AND state = 'RUNNING'
+            """;
+
+    private static final String SELECT_JOB = """
+            SELECT job_id, state, status, affected, chunks, started_at, finished_at, error
+            FROM bulk_status_job
+            WHERE job_id = ?
+            """;
+
+    private static final String FAIL_JOBS = """
+            UPDATE bulk_status_job
+            SET state = 'FAILED', error = ?, finished_at = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP
+            WHERE state = 'RUNNING' AND updated_at < ?
+            """;
+
+    private static final String DELETE_JOBS = """
+            DELETE FROM bulk_status_job
+            WHERE job_id IN (SELECT job_id FROM bulk_status_job WHERE state <> 'RUNNING' AND updated_at < ? LIMIT ?)
+            """;
+
+    private static final RowMapper<BulkStatusJobDto> JOB_MAPPER = (rs, rowNum) -> new BulkStatusJobDto(
+            rs.getObject("job_id", UUID.class),
+            BulkJobState.valueOf(rs.getString("state")),
+            Status.valueOf(rs.getString("status")),
+            rs.getLong("affected"),
+            rs.getLong("chunks"),
+            rs.getObject("started_at", LocalDateTime.class),
+            rs.getObject("finished_at", LocalDateTime.class),
+            rs.getString("error"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(BulkStatusJobDto job) {
+        jdbcTemplate.update(INSERT_JOB, job.getJobId(), job.getState().name(), job.getStatus().name(),
+                Timestamp.valueOf(job.getStartedAt()));
+    }
+
+    /**
+     * Must run in the transaction of the chunk, so that the progress counts committed chunks only.
+     */
+    public void addChunk(UUID jobId, int affected) {
+        jdbcTemplate.update(UPDATE_PROGRESS, affected, jobId);
+    }
+
+    /**
+     * Leaves a job that was failed as abandoned meanwhile as it is.
+     */
+    public void finish(UUID jobId, BulkJobState state, String error) {
+        jdbcTemplate.update(UPDATE_STATE, state.name(), error, Timestamp.valueOf(LocalDateTime.now()), jobId);
+    }
+
+    public Optional<BulkStatusJobDto> findById(UUID jobId) {
+        return jdbcTemplate.query(SELECT_JOB, JOB_MAPPER, jobId).stream().findFirst();
+    }
+
+    /**
+     * @return number of running jobs without progress since {@code before}, now failed with the error
+     */
+    public int failNotUpdatedSince(LocalDateTime before, String error) {
+        return jdbcTemplate.update(FAIL_JOBS, error, Timestamp.valueOf(before));
+    }
+
+    /**
+     * @return number of deleted finished jobs, at most {@code limit}
+     */
+    public int deleteFinishedBefore(LocalDateTime before, int limit) {
+        return jdbcTemplate.update(DELETE_JOBS, Timestamp.valueOf(before), limit);
+    }
+}
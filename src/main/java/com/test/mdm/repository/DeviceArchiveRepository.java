@@ -0,0 +1,31 @@
+package com.test.mdm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+/**
+ * Monthly partitions of {@code device_archive}, maintained by the functions of {@code db.device_archive.xml}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DeviceArchiveRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return number of created partitions
+     */
+    public int createPartitions(int monthsAhead) {
+        return jdbcTemplate.queryForObject("SELECT device_archive_create_partitions(?)", Integer.class, monthsAhead);
+    }
+
+    /**
+     * @return number of dropped partitions, those of months ending before the given day
+     */
+    public int dropPartitionsBefore(LocalDate before) {
+        return jdbcTemplate.queryForObject("SELECT device_archive_drop_partitions(?)", Integer.class, before);
+    }
+}
@@ -0,0 +1,105 @@
+package com.test.mdm.repository;
+
+import com.test.mdm.dto.DeviceChangeDto;
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.entity.Status;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.util.ChangeOffset;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Outbox of device changes. Every change row carries the id of the transaction that wrote it, changes are read in
+ * (transaction id, change id) order and only from transactions older than every running one, so a reader never
+ * moves past a change that is committed later.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DeviceChangeRepository {
+
+    private static final String INSERT_CHANGES = """
+            INSERT INTO device_change (tx_id, change_type, device_pk, device_id)
+            SELECT pg_current_xact_id()::text::bigint, * FROM unnest(?::varchar[], ?::bigint[], ?::bigint[])
+            """;
+
+    private static final String SELECT_CHANGES = """
+            SELECT c.id AS change_id, c.tx_id, c.change_type, c.device_pk, c.device_id AS changed_device_id,
+                   c.changed_at, d.id, d.device_id, d.device_name, d.status, d.created_at, d.version
+            FROM device_change c
+            LEFT JOIN device d ON d.id = c.device_pk
+            WHERE (c.tx_id, c.id) > (?, ?)
+              AND c.tx_id < pg_snapshot_xmin(pg_current_snapshot())::text::bigint
+            ORDER BY c.tx_id, c.id
+            LIMIT ?
+            """;
+
+    private static final String DELETE_CHANGES = """
+            DELETE FROM device_change
+            WHERE id IN (SELECT id FROM device_change WHERE changed_at < ? LIMIT ?)
+            """;
+
+    private static final RowMapper<DeviceChangeDto> CHANGE_MAPPER = (rs, rowNum) -> {
+        long id = rs.getLong("id");
+        DeviceDto device = rs.wasNull() ? null : new DeviceDto(
+                id,
+                rs.getLong("device_id"),
+                rs.getString("device_name"),
+                Status.valueOf(rs.getString("status")),
+                rs.getObject("created_at", LocalDateTime.class),
+                rs.getLong("version"));
+        return new DeviceChangeDto(
+                new ChangeOffset(rs.getLong("tx_id"), rs.getLong("change_id")).toString(),
+                ChangeType.valueOf(rs.getString("change_type")),
+                rs.getLong("device_pk"),
+                rs.getLong("changed_device_id"),
+                rs.getObject("changed_at", LocalDateTime.class),
+                device);
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Must run in the transaction that made the changes.
+     */
+    public void insertAll(List<DeviceChangedEvent> changes) {
+        int size = changes.size();
+        String[] types = new String[size];
+        Long[] ids = new Long[size];
+        Long[] deviceIds = new Long[size];
+        for (int i = 0; i < size; i++) {
+            DeviceChangedEvent change = changes.get(i);
+            types[i] = change.type().name();
+            ids[i] = change.id();
+            deviceIds[i] = change.deviceId();
+        }
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_CHANGES);
+            statement.setArray(1, connection.createArrayOf("varchar", types));
+            statement.setArray(2, connection.createArrayOf("bigint", ids));
+            statement.setArray(3, connection.createArrayOf("bigint", deviceIds));
+            return statement;
+        });
+    }
+
+    /**
+     * Committed changes after the offset with the current state of their devices.
+     */
+    public List<DeviceChangeDto> findAfter(ChangeOffset after, int limit) {
+        return jdbcTemplate.query(SELECT_CHANGES, CHANGE_MAPPER, after.txId(), after.id(), limit);
+    }
+
+    /**
+     * @return number of deleted changes, at most {@code limit}
+     */
+    public int deleteChangedBefore(LocalDateTime before, int limit) {
+        return jdbcTemplate.update(DELETE_CHANGES, Timestamp.valueOf(before), limit);
+    }
+}
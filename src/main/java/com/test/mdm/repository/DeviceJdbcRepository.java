@@ -0,0 +1,296 @@
+package com.test.mdm.repository;
+
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.request.DeviceFilter;
+import com.test.mdm.dto.request.DeviceSortField;
+import com.test.mdm.entity.DeviceEntity;
+import com.test.mdm.entity.Status;
+import com.test.mdm.util.DeviceCursor.Position;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ObjLongConsumer;
+
+import static com.test.mdm.entity.DeviceEntity.ID_ALLOCATION_SIZE;
+import static com.test.mdm.repository.DeviceRepository.STREAM_FETCH_SIZE;
+
+@Repository
+@RequiredArgsConstructor
+public class DeviceJdbcRepository {
+
+    private static final String ALLOCATE_ID_BLOCKS = "SELECT nextval('device_id_seq') FROM generate_series(1, ?)";
+
+    private static final String INSERT_DEVICES = """
+            INSERT INTO device (id, device_id, device_name, status)
+            SELECT * FROM unnest(?::bigint[], ?::bigint[], ?::varchar[], ?::varchar[])
+            """;
+
+    private static final String ON_CONFLICT_DO_NOTHING = """
+            ON CONFLICT (device_id) DO NOTHING
+            RETURNING id, device_id, (xmax = 0) AS inserted
+            """;
+
+    private static final String ON_CONFLICT_DO_UPDATE = """
+            ON CONFLICT (device_id) DO UPDATE
+                SET device_name = EXCLUDED.device_name,
+                    status      = EXCLUDED.status,
+                    version     = device.version + 1
+            RETURNING id, device_id, (xmax = 0) AS inserted
+            """;
+
+    private static final String UPDATE_STATUS = """
+            UPDATE device SET status = ?, version = version + 1
+            WHERE %s = ANY(?) AND status <> ?
+            RETURNING id, device_id
+            """;
+
+    private static final String UPDATE_STATUSES = """
+            UPDATE device d SET status = u.status, version = d.version + 1
+            FROM unnest(?::bigint[], ?::varchar[]) AS u(id, status)
+            WHERE d.id = u.id
+            RETURNING d.id, d.device_id, d.device_name, d.status, d.created_at, d.version
+            """;
+
+    private static final String SELECT_DEVICES = "SELECT id, device_id, device_name, status, created_at, version FROM device";
+
+    private static final String SELECT_DEVICES_BY_KEYS = SELECT_DEVICES + " WHERE %s = ANY(?)";
+
+    private static final String SELECT_STATUSES = "SELECT device_id, status FROM device";
+
+    private static final String SELECT_STATUS_BY_DEVICE_ID = "SELECT status FROM device WHERE device_id = ?";
+
+    private static final RowMapper<DeviceDto> DEVICE_MAPPER = (rs, rowNum) -> new DeviceDto(
+            rs.getLong("id"),
+            rs.getLong("device_id"),
+            rs.getString("device_name"),
+            Status.valueOf(rs.getString("status")),
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getLong("version"));
+
+    private static final RowMapper<ChangedDevice> CHANGED_DEVICE_MAPPER =
+            (rs, rowNum) -> new ChangedDevice(rs.getLong("id"), rs.getLong("device_id"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Allocates ids the same way as the pooled optimizer of {@link DeviceEntity}: every sequence value is the upper
+     * bound of a block of {@link DeviceEntity#ID_ALLOCATION_SIZE} ids.
+     */
+    public long[] allocateIds(int count) {
+        long[] ids = new long[count];
+        int allocated = 0;
+        while (allocated < count) {
+            int blocks = (count - allocated + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE;
+            for (Long hi : jdbcTemplate.queryForList(ALLOCATE_ID_BLOCKS, Long.class, blocks)) {
+                for (long id = Math.max(hi - ID_ALLOCATION_SIZE + 1, 1); id <= hi && allocated < count; id++) {
+                    ids[allocated++] = id;
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Writes all devices with a single statement. Devices whose deviceId already exists are skipped, or updated
+     * when {@code upsert} is set; only written rows are returned.
+     */
+    public List<WrittenDevice> insertAll(List<DeviceEntity> devices, boolean upsert) {
+        String sql = INSERT_DEVICES + (upsert ? ON_CONFLICT_DO_UPDATE : ON_CONFLICT_DO_NOTHING);
+        return jdbcTemplate.query(
+                connection -> prepareInsert(connection, sql, devices),
+                (rs, rowNum) -> new WrittenDevice(rs.getLong("id"), rs.getLong("device_id"), rs.getBoolean("inserted")));
+    }
+
+    /**
+     * Devices matching the filter ordered by the sort field and id, starting after the given position. Every sort
+     * field is backed by an index on ({@code column}, id), so pages are index range scans.
+     */
+    public List<DeviceDto> search(DeviceFilter filter, DeviceSortField sortField, Sort.Direction direction,
+                                  Position after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        String column = sortField.getColumn();
+        String comparison = direction.isAscending() ? ">" : "<";
+        StringBuilder sql = new StringBuilder(SELECT_DEVICES).append(" WHERE TRUE").append(filterCondition(filter, params));
+        if (after != null && sortField == DeviceSortField.ID) {
+            sql.append(" AND id ").append(comparison).append(" :afterId");
+            params.addValue("afterId", after.id());
+        } else if (after != null) {
+            sql.append(" AND (").append(column).append(", id) ").append(comparison).append(" (:afterValue, :afterId)");
+            params.addValue("afterId", after.id());
+            params.addValue("afterValue", after.value() instanceof LocalDateTime createdAt
+                    ? Timestamp.valueOf(createdAt)
+                    : after.value());
+        }
+        sql.append(" ORDER BY ");
+        if (sortField != DeviceSortField.ID) {
+            sql.append(column).append(' ').append(direction.name()).append(", ");
+        }
+        sql.append("id ").append(direction.name()).append(" LIMIT :limit");
+        return namedParameterJdbcTemplate.query(sql.toString(), params, DEVICE_MAPPER);
+    }
+
+    /**
+     * Devices with the given ids in any order, a single statement with an array parameter whatever the number of
+     * ids, so it is prepared once. Unknown ids are skipped.
+     */
+    public List<DeviceDto> findByIds(Collection<Long> ids) {
+        return findByKeys("id", ids);
+    }
+
+    public List<DeviceDto> findByDeviceIds(Collection<Long> deviceIds) {
+        return findByKeys("device_id", deviceIds);
+    }
+
+    /**
+     * Streams the status of every device through a server-side cursor, without building a row object per device.
+     * Must run inside a transaction.
+     */
+    public void streamStatuses(ObjLongConsumer<Status> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_STATUSES);
+            statement.setFetchSize(Integer.parseInt(STREAM_FETCH_SIZE));
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(Status.valueOf(rs.getString(2)), rs.getLong(1)));
+    }
+
+    public Optional<Status> findStatusByDeviceId(long deviceId) {
+        return jdbcTemplate.query(SELECT_STATUS_BY_DEVICE_ID, (rs, rowNum) -> Status.valueOf(rs.getString(1)), deviceId)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Ids of devices matching the filter, in id order after {@code afterId}.
+     */
+    public List<Long> findIds(DeviceFilter filter, long afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+        String sql = "SELECT id FROM device WHERE id > :afterId" + filterCondition(filter, params)
+                + " ORDER BY id LIMIT :limit";
+        return namedParameterJdbcTemplate.queryForList(sql, params, Long.class);
+    }
+
+    /**
+     * Sets the status of the given devices, devices already in that status are not touched and not returned.
+     */
+    public List<ChangedDevice> updateStatusByIds(Collection<Long> ids, Status status) {
+        return updateStatus("id", ids, status);
+    }
+
+    public List<ChangedDevice> updateStatusByDeviceIds(Collection<Long> deviceIds, Status status) {
+        return updateStatus("device_id", deviceIds, status);
+    }
+
+    /**
+     * Keys are bound as one array, so chunks of any size share one prepared statement.
+     */
+    private List<ChangedDevice> updateStatus(String keyColumn, Collection<Long> keys, Status status) {
+        Long[] values = keys.toArray(Long[]::new);
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(String.format(UPDATE_STATUS, keyColumn));
+            statement.setString(1, status.name());
+            statement.setArray(2, connection.createArrayOf("bigint", values));
+            statement.setString(3, status.name());
+            return statement;
+        }, CHANGED_DEVICE_MAPPER);
+    }
+
+    /**
+     * Sets a status per device with a single statement, every device gets a new version like a single status update.
+     * Rows are locked in the iteration order of the map, callers sort it by id so that batches cannot deadlock.
+     *
+     * @return updated devices, unknown ids are skipped
+     */
+    public List<DeviceDto> updateStatuses(Map<Long, Status> statuses) {
+        Long[] ids = statuses.keySet().toArray(Long[]::new);
+        String[] values = statuses.values().stream().map(Status::name).toArray(String[]::new);
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(UPDATE_STATUSES);
+            statement.setArray(1, connection.createArrayOf("bigint", ids));
+            statement.setArray(2, connection.createArrayOf("varchar", values));
+            return statement;
+        }, DEVICE_MAPPER);
+    }
+
+    private List<DeviceDto> findByKeys(String keyColumn, Collection<Long> keys) {
+        Long[] values = keys.toArray(Long[]::new);
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(String.format(SELECT_DEVICES_BY_KEYS, keyColumn));
+            statement.setArray(1, connection.createArrayOf("bigint", values));
+            return statement;
+        }, DEVICE_MAPPER);
+    }
+
+    private String filterCondition(DeviceFilter filter, MapSqlParameterSource params) {
+        StringBuilder condition = new StringBuilder();
+        if (filter.getStatus() != null) {
+            condition.append(" AND status = :filterStatus");
+            params.addValue("filterStatus", filter.getStatus().name());
+        }
+        if (filter.getDeviceNamePrefix() != null && !filter.getDeviceNamePrefix().isEmpty()) {
+            condition.append(" AND device_name LIKE :deviceNamePrefix");
+            params.addValue("deviceNamePrefix", escapeLike(filter.getDeviceNamePrefix()) + "%");
+        }
+        if (filter.getDeviceNameContains() != null && !filter.getDeviceNameContains().isEmpty()) {
+            condition.append(" AND device_name ILIKE :deviceNameContains");
+            params.addValue("deviceNameContains", "%" + escapeLike(filter.getDeviceNameContains()) + "%");
+        }
+        if (filter.getCreatedFrom() != null) {
+            condition.append(" AND created_at >= :createdFrom");
+            params.addValue("createdFrom", Timestamp.valueOf(filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            condition.append(" AND created_at < :createdTo");
+            params.addValue("createdTo", Timestamp.valueOf(filter.getCreatedTo()));
+        }
+        return condition.toString();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private PreparedStatement prepareInsert(Connection connection, String sql, List<DeviceEntity> devices) throws SQLException {
+        int size = devices.size();
+        Long[] ids = new Long[size];
+        Long[] deviceIds = new Long[size];
+        String[] deviceNames = new String[size];
+        String[] statuses = new String[size];
+        for (int i = 0; i < size; i++) {
+            DeviceEntity device = devices.get(i);
+            ids[i] = device.getId();
+            deviceIds[i] = device.getDeviceId();
+            deviceNames[i] = device.getDeviceName();
+            statuses[i] = device.getStatus().name();
+        }
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statement.setArray(1, connection.createArrayOf("bigint", ids));
+        statement.setArray(2, connection.createArrayOf("bigint", deviceIds));
+        statement.setArray(3, connection.createArrayOf("varchar", deviceNames));
+        statement.setArray(4, connection.createArrayOf("varchar", statuses));
+        return statement;
+    }
+
+    public record WrittenDevice(long id, long deviceId, boolean inserted) {
+    }
+
+    public record ChangedDevice(long id, long deviceId) {
+    }
+}
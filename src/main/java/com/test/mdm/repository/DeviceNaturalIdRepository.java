@@ -0,0 +1,13 @@
+package com.test.mdm.repository;
+
+import com.test.mdm.entity.DeviceEntity;
+
+import java.util.Optional;
+
+public interface DeviceNaturalIdRepository {
+
+    /**
+     * Loads by the natural id, resolved through the natural-id and second-level caches before querying.
+     */
+    Optional<DeviceEntity> findByDeviceId(Long deviceId);
+}
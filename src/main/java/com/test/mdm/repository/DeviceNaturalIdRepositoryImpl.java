@@ -0,0 +1,21 @@
+package com.test.mdm.repository;
+
+import com.test.mdm.entity.DeviceEntity;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+
+import java.util.Optional;
+
+@RequiredArgsConstructor
+class DeviceNaturalIdRepositoryImpl implements DeviceNaturalIdRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Optional<DeviceEntity> findByDeviceId(Long deviceId) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(DeviceEntity.class)
+                .loadOptional(deviceId);
+    }
+}
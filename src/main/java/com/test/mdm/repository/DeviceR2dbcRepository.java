@@ -0,0 +1,147 @@
+package com.test.mdm.repository;
+
+import com.test.mdm.config.ReactiveDataSourceProperties;
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.entity.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.test.mdm.repository.DeviceRepository.STREAM_FETCH_SIZE;
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+
+/**
+ * Device reads of the reactive stack over R2DBC, the queries of {@link DeviceRepository} without blocking a thread.
+ * <p>
+ * The connection pool is owned here and not a bean: a {@code ConnectionFactory} bean would switch off the JDBC data
+ * source that Liquibase, the writes and the outbox keep running on.
+ */
+@Repository
+@ConditionalOnWebApplication(type = REACTIVE)
+public class DeviceR2dbcRepository implements DisposableBean {
+
+    static final String POOL_NAME = "reactive";
+
+    private static final String SELECT_DEVICES = "SELECT id, device_id, device_name, status, created_at, version FROM device";
+
+    private final ConnectionPool connectionPool;
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator readOnlyTransactionalOperator;
+    private final int fetchSize = Integer.parseInt(STREAM_FETCH_SIZE);
+
+    public DeviceR2dbcRepository(DataSourceProperties dataSourceProperties,
+                                 ReactiveDataSourceProperties reactiveProperties,
+                                 MeterRegistry meterRegistry) {
+        this.connectionPool = connectionPool(dataSourceProperties, reactiveProperties);
+        this.databaseClient = DatabaseClient.create(connectionPool);
+        DefaultTransactionDefinition readOnly = new DefaultTransactionDefinition();
+        readOnly.setReadOnly(true);
+        this.readOnlyTransactionalOperator =
+                TransactionalOperator.create(new R2dbcTransactionManager(connectionPool), readOnly);
+        new ConnectionPoolMetrics(connectionPool, POOL_NAME, Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Cursor over the whole table in a read-only transaction, the next rows are fetched as the subscriber requests
+     * them, so a slow client holds back the query instead of buffering the table.
+     */
+    public Flux<DeviceDto> streamAllDtos() {
+        Flux<DeviceDto> devices = databaseClient.sql(SELECT_DEVICES + " ORDER BY id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(DeviceR2dbcRepository::toDto)
+                .all();
+        return readOnlyTransactionalOperator.transactional(devices);
+    }
+
+    public Flux<DeviceDto> findDtosByIdGreaterThan(long id, int limit) {
+        return databaseClient.sql(SELECT_DEVICES + " WHERE id > :id ORDER BY id LIMIT :limit")
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(DeviceR2dbcRepository::toDto)
+                .all();
+    }
+
+    public Mono<DeviceDto> findById(long id) {
+        return databaseClient.sql(SELECT_DEVICES + " WHERE id = :id")
+                .bind("id", id)
+                .map(DeviceR2dbcRepository::toDto)
+                .one();
+    }
+
+    public Mono<DeviceDto> findByDeviceId(long deviceId) {
+        return databaseClient.sql(SELECT_DEVICES + " WHERE device_id = :deviceId")
+                .bind("deviceId", deviceId)
+                .map(DeviceR2dbcRepository::toDto)
+                .one();
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+
+    private static DeviceDto toDto(Readable row) {
+        return new DeviceDto(
+                row.get("id", Long.class),
+                row.get("device_id", Long.class),
+                row.get("device_name", String.class),
+                Status.valueOf(row.get("status", String.class)),
+                row.get("created_at", LocalDateTime.class),
+                row.get("version", Long.class));
+    }
+
+    /**
+     * {@code jdbc:postgresql://host:port/database} is reached as {@code r2dbc:postgresql://host:port/database}. Of the
+     * JDBC parameters only the credentials are taken over, where {@code spring.datasource} does not set them.
+     */
+    private static ConnectionPool connectionPool(DataSourceProperties dataSourceProperties,
+                                                 ReactiveDataSourceProperties reactiveProperties) {
+        String[] url = dataSourceProperties.determineUrl().replaceFirst("^jdbc:", "r2dbc:").split("\\?", 2);
+        Map<String, String> parameters = new HashMap<>();
+        if (url.length > 1) {
+            for (String parameter : url[1].split("&")) {
+                String[] pair = parameter.split("=", 2);
+                parameters.put(pair[0], pair.length > 1 ? URLDecoder.decode(pair[1], StandardCharsets.UTF_8) : "");
+            }
+        }
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url[0]).mutate();
+        String username = dataSourceProperties.determineUsername() == null
+                ? parameters.get("user") : dataSourceProperties.determineUsername();
+        String password = dataSourceProperties.determinePassword() == null
+                ? parameters.get("password") : dataSourceProperties.determinePassword();
+        if (username != null) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (password != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .name(POOL_NAME)
+                .initialSize(reactiveProperties.initialSize())
+                .maxSize(reactiveProperties.maxSize())
+                .maxIdleTime(reactiveProperties.maxIdleTime())
+                .maxAcquireTime(reactiveProperties.maxAcquireTime())
+                .build());
+    }
+}
@@ -1,13 +1,81 @@
 package com.test.mdm.repository;
 
+import com.test.mdm.dto.DeviceDto;
 import com.test.mdm.entity.DeviceEntity;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface DeviceRepository extends JpaRepository<DeviceEntity, Long> {
+public interface DeviceRepository extends JpaRepository<DeviceEntity, Long>, DeviceNaturalIdRepository {
+
+    String STREAM_FETCH_SIZE = "1000";
+
+    /**
+     * List reads project straight into {@link DeviceDto}, without managed entities, dirty-check snapshots or a copy.
+     * Single devices are loaded as entities instead, through the second-level cache.
+     */
+    String SELECT_DEVICE_DTO = "select new com.test.mdm.dto.DeviceDto(d.id, d.deviceId, d.deviceName, d.status, "
+            + "d.createdAt, d.version) from DeviceEntity d ";
+
+    String ARCHIVE_DEVICE = "INSERT INTO device_archive (id, device_id, device_name, status, created_at, version) "
+            + "SELECT id, device_id, device_name, status, created_at, version FROM archived RETURNING device_id";
+
+    @Query(SELECT_DEVICE_DTO + "where d.id > :id order by d.id")
+    List<DeviceDto> findDtosByIdGreaterThan(Long id, Limit limit);
+
+    /**
+     * Server-side cursor over the whole table, must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(SELECT_DEVICE_DTO + "order by d.id")
+    Stream<DeviceDto> streamAllDtos();
+
+    /**
+     * The returned entity is not put in the second-level cache before the transaction commits, native statements
+     * bypass its locking. The committed change evicts it.
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHE_MODE, value = "IGNORE"))
+    @Query(value = "UPDATE device SET status = :status, version = version + 1 WHERE id = :id RETURNING *",
+            nativeQuery = true)
+    Optional<DeviceEntity> updateStatusById(Long id, String status);
+
+    /**
+     * @return updated device, empty when there is no device with that id and version
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHE_MODE, value = "IGNORE"))
+    @Query(value = "UPDATE device SET status = :status, version = version + 1 WHERE id = :id AND version = :version "
+            + "RETURNING *", nativeQuery = true)
+    Optional<DeviceEntity> updateStatusByIdAndVersion(Long id, String status, Long version);
+
+    /**
+     * @return deviceId of the deleted device, empty when no row was deleted
+     */
+    @Query(value = "DELETE FROM device WHERE id = :id RETURNING device_id", nativeQuery = true)
+    Optional<Long> deleteByIdReturningDeviceId(Long id);
+
+    @Query(value = "DELETE FROM device WHERE id = :id AND version = :version RETURNING device_id", nativeQuery = true)
+    Optional<Long> deleteByIdAndVersionReturningDeviceId(Long id, Long version);
+
+    /**
+     * Moves the device to the current partition of {@code device_archive}.
+     *
+     * @return deviceId of the archived device, empty when no row was moved
+     */
+    @Query(value = "WITH archived AS (DELETE FROM device WHERE id = :id RETURNING *) " + ARCHIVE_DEVICE, nativeQuery = true)
+    Optional<Long> archiveByIdReturningDeviceId(Long id);
 
-    Optional<DeviceEntity> findByDeviceId(Long deviceId);
+    @Query(value = "WITH archived AS (DELETE FROM device WHERE id = :id AND version = :version RETURNING *) "
+            + ARCHIVE_DEVICE, nativeQuery = true)
+    Optional<Long> archiveByIdAndVersionReturningDeviceId(Long id, Long version);
 }
@@ -0,0 +1,42 @@
+package com.test.mdm.service;
+
+import com.test.mdm.config.DeviceArchiveProperties;
+import com.test.mdm.repository.DeviceArchiveRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static com.test.mdm.util.Constant.DEVICE_ARCHIVE_PARTITIONS_CREATED;
+import static com.test.mdm.util.Constant.DEVICE_ARCHIVE_PARTITIONS_DROPPED;
+
+/**
+ * Keeps archive partitions ahead of archival and drops those past retention. Safe to run on every instance, the
+ * partition functions serialize on an advisory lock.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeviceArchiveMaintenance {
+
+    private final DeviceArchiveRepository deviceArchiveRepository;
+    private final DeviceArchiveProperties deviceArchiveProperties;
+
+    @Scheduled(initialDelay = 0, fixedDelay = 6, timeUnit = TimeUnit.HOURS)
+    public void maintainPartitions() {
+        int created = deviceArchiveRepository.createPartitions(deviceArchiveProperties.partitionsAhead());
+        if (created > 0) {
+            log.info(DEVICE_ARCHIVE_PARTITIONS_CREATED, created);
+        }
+        if (deviceArchiveProperties.retention() != null) {
+            LocalDate before = LocalDate.now().minus(deviceArchiveProperties.retention());
+            int dropped = deviceArchiveRepository.dropPartitionsBefore(before);
+            if (dropped > 0) {
+                log.info(DEVICE_ARCHIVE_PARTITIONS_DROPPED, dropped, before);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.test.mdm.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.test.mdm.config.DeviceBulkProperties;
+import com.test.mdm.dto.BulkDeviceItemResultDto;
+import com.test.mdm.dto.BulkDeviceResultDto;
+import com.test.mdm.dto.BulkItemResult;
+import com.test.mdm.dto.request.BulkMode;
+import com.test.mdm.dto.request.DeviceRequest;
+import com.test.mdm.entity.DeviceEntity;
+import com.test.mdm.entity.Status;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.repository.DeviceJdbcRepository;
+import com.test.mdm.repository.DeviceJdbcRepository.WrittenDevice;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.test.mdm.util.Constant.*;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeviceBulkService {
+
+    private static final String ROWS_METRIC = "mdm.devices.bulk.rows";
+    private static final String DURATION_METRIC = "mdm.devices.bulk.duration";
+
+    private final DeviceJdbcRepository deviceJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final MeterRegistry meterRegistry;
+    private final DeviceBulkProperties deviceBulkProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Validates and writes devices in batches of {@code mdm.devices.bulk.batch-size}, every batch in its own
+     * transaction. Batches written before a malformed element stay committed.
+     */
+    public BulkDeviceResultDto ingestDevices(MappingIterator<DeviceRequest> requests, BulkMode mode) throws IOException {
+        long startedAt = System.nanoTime();
+        int batchSize = deviceBulkProperties.batchSize();
+        List<BulkDeviceItemResultDto> items = new ArrayList<>();
+        List<PendingDevice> batch = new ArrayList<>(batchSize);
+        while (requests.hasNextValue()) {
+            DeviceRequest request = requests.nextValue();
+            BulkDeviceItemResultDto item = new BulkDeviceItemResultDto();
+            item.setIndex(items.size());
+            item.setDeviceId(request.getDeviceId());
+            items.add(item);
+
+            Map<String, String> errors = validate(request);
+            if (!errors.isEmpty()) {
+                reject(item, BulkItemResult.INVALID, errors);
+                continue;
+            }
+            batch.add(new PendingDevice(item, request.toDeviceEntity(new DeviceEntity())));
+            if (batch.size() == batchSize) {
+                writeBatch(batch, mode);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, mode);
+        }
+        return summarize(items, mode, System.nanoTime() - startedAt);
+    }
+
+    private void writeBatch(List<PendingDevice> batch, BulkMode mode) {
+        Map<Long, PendingDevice> devicesByDeviceId = new LinkedHashMap<>();
+        for (PendingDevice pending : batch) {
+            if (devicesByDeviceId.putIfAbsent(pending.device().getDeviceId(), pending) != null) {
+                reject(pending.item(), BulkItemResult.DUPLICATE, Map.of("deviceId", DUPLICATE_DEVICE_ID_IN_REQUEST));
+            }
+        }
+        List<DeviceEntity> devices = devicesByDeviceId.values().stream().map(PendingDevice::device).toList();
+
+        List<WrittenDevice> written = transactionTemplate.execute(status -> {
+            long[] ids = deviceJdbcRepository.allocateIds(devices.size());
+            for (int i = 0; i < ids.length; i++) {
+                devices.get(i).setId(ids[i]);
+            }
+            List<WrittenDevice> rows = deviceJdbcRepository.insertAll(devices, mode == BulkMode.UPSERT);
+            rows.forEach(row -> eventPublisher.publishEvent(new DeviceChangedEvent(
+                    row.inserted() ? ChangeType.CREATED : ChangeType.UPDATED, row.id(), row.deviceId())));
+            return rows;
+        });
+
+        for (WrittenDevice device : written) {
+            BulkDeviceItemResultDto item = devicesByDeviceId.remove(device.deviceId()).item();
+            item.setId(device.id());
+            item.setResult(device.inserted() ? BulkItemResult.CREATED : BulkItemResult.UPDATED);
+        }
+        devicesByDeviceId.values().forEach(pending ->
+                reject(pending.item(), BulkItemResult.DUPLICATE, Map.of("deviceId", DEVICE_ID_ALREADY_EXISTS)));
+    }
+
+    private Map<String, String> validate(DeviceRequest request) {
+        Map<String, String> errors = new HashMap<>();
+        for (ConstraintViolation<DeviceRequest> violation : validator.validate(request)) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        if (!errors.containsKey("status")) {
+            try {
+                Status.valueOf(request.getStatus());
+            } catch (IllegalArgumentException e) {
+                errors.put("status", String.format(UNKNOWN_STATUS, request.getStatus()));
+            }
+        }
+        return errors;
+    }
+
+    private void reject(BulkDeviceItemResultDto item, BulkItemResult result, Map<String, String> errors) {
+        item.setResult(result);
+        item.setErrors(errors);
+    }
+
+    private BulkDeviceResultDto summarize(List<BulkDeviceItemResultDto> items, BulkMode mode, long elapsedNanos) {
+        Map<BulkItemResult, Integer> counts = new HashMap<>();
+        items.forEach(item -> counts.merge(item.getResult(), 1, Integer::sum));
+        int created = counts.getOrDefault(BulkItemResult.CREATED, 0);
+        int updated = counts.getOrDefault(BulkItemResult.UPDATED, 0);
+        int failed = items.size() - created - updated;
+        double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+        double rowsPerSecond = (created + updated) / seconds;
+
+        counts.forEach((result, count) -> meterRegistry
+                .counter(ROWS_METRIC, "mode", mode.name(), "result", result.name())
+                .increment(count));
+        Timer.builder(DURATION_METRIC)
+                .tag("mode", mode.name())
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        log.info(BULK_DEVICES_PROCESSED, mode, items.size(), created, updated, failed, Math.round(rowsPerSecond));
+        return new BulkDeviceResultDto(items.size(), created, updated, failed, rowsPerSecond, items);
+    }
+
+    private record PendingDevice(BulkDeviceItemResultDto item, DeviceEntity device) {
+    }
+}
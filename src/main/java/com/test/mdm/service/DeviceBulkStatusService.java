@@ -0,0 +1,146 @@
+package com.test.mdm.service;
+
+import com.test.mdm.config.DeviceBulkProperties;
+import com.test.mdm.dto.BulkJobState;
+import com.test.mdm.dto.BulkStatusJobDto;
+import com.test.mdm.dto.request.BulkStatusRequest;
+import com.test.mdm.entity.Status;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.exception.NotFoundException;
+import com.test.mdm.repository.BulkStatusJobRepository;
+import com.test.mdm.repository.DeviceJdbcRepository;
+import com.test.mdm.repository.DeviceJdbcRepository.ChangedDevice;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static com.test.mdm.util.Constant.BULK_STATUS_JOBS_ABANDONED;
+import static com.test.mdm.util.Constant.BULK_STATUS_JOB_ABANDONED;
+import static com.test.mdm.util.Constant.BULK_STATUS_JOB_FINISHED;
+import static com.test.mdm.util.Constant.BULK_STATUS_JOB_NOT_FOUND;
+
+/**
+ * Changes the status of many devices in chunks of {@code mdm.devices.bulk.status-chunk-size}, every chunk being one
+ * set based UPDATE in its own transaction. Jobs run on the application task executor of the instance that accepted
+ * them, their state and progress are stored with every chunk and can be fetched from any instance for
+ * {@code mdm.devices.bulk.job-retention} after they finished. A job whose instance stopped is failed once it made no
+ * progress for {@code mdm.devices.bulk.job-timeout}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeviceBulkStatusService {
+
+    private final DeviceJdbcRepository deviceJdbcRepository;
+    private final BulkStatusJobRepository bulkStatusJobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DeviceBulkProperties deviceBulkProperties;
+    private final TaskExecutor applicationTaskExecutor;
+
+    public BulkStatusJobDto submit(BulkStatusRequest request) {
+        BulkStatusJobDto job = new BulkStatusJobDto(UUID.randomUUID(), BulkJobState.RUNNING, request.getStatus(), 0, 0,
+                LocalDateTime.now(), null, null);
+        bulkStatusJobRepository.insert(job);
+        applicationTaskExecutor.execute(() -> run(job.getJobId(), request));
+        return job;
+    }
+
+    public BulkStatusJobDto getJob(UUID jobId) {
+        return bulkStatusJobRepository.findById(jobId)
+                .orElseThrow(() -> new NotFoundException(String.format(BULK_STATUS_JOB_NOT_FOUND, jobId)));
+    }
+
+    /**
+     * Fails running jobs whose instance stopped and deletes expired ones. Every instance runs it, both are idempotent.
+     */
+    @Scheduled(initialDelay = 1, fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void expireJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        int abandoned = bulkStatusJobRepository.failNotUpdatedSince(now.minus(deviceBulkProperties.jobTimeout()),
+                BULK_STATUS_JOB_ABANDONED.formatted(deviceBulkProperties.jobTimeout()));
+        if (abandoned > 0) {
+            log.warn(BULK_STATUS_JOBS_ABANDONED, abandoned, deviceBulkProperties.jobTimeout());
+        }
+        LocalDateTime before = now.minus(deviceBulkProperties.jobRetention());
+        int deleted;
+        do {
+            deleted = bulkStatusJobRepository.deleteFinishedBefore(before, deviceBulkProperties.batchSize());
+        } while (deleted == deviceBulkProperties.batchSize());
+    }
+
+    private void run(UUID jobId, BulkStatusRequest request) {
+        int chunkSize = deviceBulkProperties.statusChunkSize();
+        Status status = request.getStatus();
+        Progress progress = new Progress();
+        BulkJobState state = BulkJobState.COMPLETED;
+        String error = null;
+        try {
+            if (request.getIds() != null) {
+                for (List<Long> ids : partition(request.getIds(), chunkSize)) {
+                    applyChunk(jobId, progress, () -> deviceJdbcRepository.updateStatusByIds(ids, status));
+                }
+            }
+            if (request.getDeviceIds() != null) {
+                for (List<Long> deviceIds : partition(request.getDeviceIds(), chunkSize)) {
+                    applyChunk(jobId, progress, () -> deviceJdbcRepository.updateStatusByDeviceIds(deviceIds, status));
+                }
+            }
+            if (request.getFilter() != null) {
+                long afterId = 0;
+                List<Long> ids;
+                while (!(ids = deviceJdbcRepository.findIds(request.getFilter(), afterId, chunkSize)).isEmpty()) {
+                    List<Long> chunk = ids;
+                    applyChunk(jobId, progress, () -> deviceJdbcRepository.updateStatusByIds(chunk, status));
+                    afterId = ids.get(ids.size() - 1);
+                }
+            }
+        } catch (RuntimeException e) {
+            state = BulkJobState.FAILED;
+            error = e.getMessage();
+            log.error("Bulk status job {} failed", jobId, e);
+        }
+        bulkStatusJobRepository.finish(jobId, state, error);
+        log.info(BULK_STATUS_JOB_FINISHED, jobId, state, progress.affected, status, progress.chunks);
+    }
+
+    private void applyChunk(UUID jobId, Progress progress, Supplier<List<ChangedDevice>> update) {
+        List<ChangedDevice> changed = transactionTemplate.execute(transaction -> {
+            List<ChangedDevice> devices = update.get();
+            devices.forEach(device -> eventPublisher.publishEvent(
+                    new DeviceChangedEvent(ChangeType.STATUS_UPDATED, device.id(), device.deviceId())));
+            bulkStatusJobRepository.addChunk(jobId, devices.size());
+            return devices;
+        });
+        progress.affected += changed.size();
+        progress.chunks++;
+    }
+
+    private static List<List<Long>> partition(List<Long> keys, int size) {
+        int chunks = (keys.size() + size - 1) / size;
+        return IntStream.range(0, chunks)
+                .mapToObj(i -> keys.subList(i * size, Math.min(keys.size(), (i + 1) * size)))
+                .toList();
+    }
+
+    /**
+     * Progress of a job as seen by the thread running it, for the log line at its end.
+     */
+    private static final class Progress {
+
+        private long affected;
+        private long chunks;
+    }
+}
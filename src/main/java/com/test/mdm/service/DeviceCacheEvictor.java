@@ -0,0 +1,87 @@
+package com.test.mdm.service;
+
+import com.test.mdm.entity.DeviceEntity;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.event.DeviceInvalidationBus;
+import com.test.mdm.event.DeviceInvalidationListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Objects;
+
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_DEVICE_ID;
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_ID;
+
+/**
+ * Evicts changed devices from the device caches and the second-level cache once their transaction is committed, on
+ * this instance and, through the {@link DeviceInvalidationBus}, on the others. An eviction also detaches a concurrent
+ * load of the same key, which then cannot cache what it loaded, see {@link DeviceReadCoalescer}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceCacheEvictor implements DeviceInvalidationListener {
+
+    private final DeviceReadCoalescer deviceReadCoalescer;
+    private final EntityManagerFactory entityManagerFactory;
+    private final DeviceInvalidationBus deviceInvalidationBus;
+
+    @PostConstruct
+    void subscribe() {
+        deviceInvalidationBus.subscribe(this);
+    }
+
+    @EventListener
+    public void publish(DeviceChangedEvent event) {
+        deviceInvalidationBus.publish(event);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        evict(event);
+    }
+
+    @Override
+    public void onRemoteChanges(List<DeviceChangedEvent> changes) {
+        changes.forEach(this::evict);
+    }
+
+    @Override
+    public void onChangesLost() {
+        log.warn("Device changes of other instances may have been missed, clearing device caches");
+        entityManagerFactory.getCache().evict(DeviceEntity.class);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictNaturalIdData(DeviceEntity.class);
+        deviceReadCoalescer.clear(DEVICES_BY_ID);
+        deviceReadCoalescer.clear(DEVICES_BY_DEVICE_ID);
+    }
+
+    /**
+     * The second-level cache goes first, a device load starting in between would read the stale entity from it.
+     */
+    private void evict(DeviceChangedEvent event) {
+        entityManagerFactory.getCache().evict(DeviceEntity.class, event.id());
+        if (event.type() == ChangeType.DELETED
+                || event.previousDeviceId() != null && !Objects.equals(event.previousDeviceId(), event.deviceId())) {
+            // natural-id cache keys can only be built inside a session, so the stale deviceId is dropped with its region
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictNaturalIdData(DeviceEntity.class);
+        }
+        evict(DEVICES_BY_ID, event.id());
+        evict(DEVICES_BY_DEVICE_ID, event.deviceId());
+        evict(DEVICES_BY_DEVICE_ID, event.previousDeviceId());
+    }
+
+    private void evict(String cacheName, Long key) {
+        if (key != null) {
+            deviceReadCoalescer.evict(cacheName, key);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.test.mdm.service;
+
+import com.test.mdm.config.DeviceChangeProperties;
+import com.test.mdm.dto.DeviceChangeDto;
+import com.test.mdm.dto.DeviceChangePageDto;
+import com.test.mdm.repository.DeviceChangeRepository;
+import com.test.mdm.util.ChangeOffset;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.test.mdm.util.Constant.DEVICE_CHANGES_NOT_READ;
+import static com.test.mdm.util.Constant.DEVICE_CHANGES_PURGED;
+
+/**
+ * Serves the device change feed to long-poll and server-sent events subscribers. Waiting subscribers share one
+ * query per poll, which runs on a schedule for changes of other instances and right after a local commit.
+ * <p>
+ * A poll only hands the changes over. Each event stream queues them and writes them to its client on a task of its
+ * own, so a slow client holds up neither the poll nor the other subscribers. A stream whose queue is full, and a new
+ * stream, catch up on that task: they read the changes after their offset batch by batch, as fast as their client
+ * takes them, and polls leave them out until they are caught up.
+ */
+@Slf4j
+@Service
+public class DeviceChangeFeed {
+
+    private final DeviceChangeRepository deviceChangeRepository;
+    private final DeviceChangeProperties deviceChangeProperties;
+    private final TaskExecutor applicationTaskExecutor;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean pollRequested = new AtomicBoolean();
+
+    public DeviceChangeFeed(DeviceChangeRepository deviceChangeRepository,
+                            DeviceChangeProperties deviceChangeProperties,
+                            TaskExecutor applicationTaskExecutor,
+                            MeterRegistry meterRegistry) {
+        this.deviceChangeRepository = deviceChangeRepository;
+        this.deviceChangeProperties = deviceChangeProperties;
+        this.applicationTaskExecutor = applicationTaskExecutor;
+        Gauge.builder("mdm.devices.changes.subscribers", subscriptions, Set::size)
+                .description("Waiting long-poll and server-sent events subscribers of the change feed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Changes after the offset, waiting up to {@code wait} for the first one when there are none yet.
+     */
+    public DeferredResult<DeviceChangePageDto> getChanges(String offset, Integer limit, Duration wait) {
+        ChangeOffset after = ChangeOffset.parse(offset);
+        int pageSize = limit == null || limit < 1
+                ? deviceChangeProperties.batchSize()
+                : Math.min(limit, deviceChangeProperties.batchSize());
+        Duration timeout = wait.isNegative() ? Duration.ZERO
+                : wait.compareTo(deviceChangeProperties.maxWait()) > 0 ? deviceChangeProperties.maxWait() : wait;
+        DeferredResult<DeviceChangePageDto> result = new DeferredResult<>(timeout.toMillis());
+        List<DeviceChangeDto> changes = deviceChangeRepository.findAfter(after, pageSize);
+        if (!changes.isEmpty() || timeout.isZero()) {
+            result.setResult(page(changes, after));
+            return result;
+        }
+        LongPoll longPoll = new LongPoll(after, pageSize, result);
+        result.onTimeout(() -> longPoll.complete(List.of()));
+        result.onCompletion(() -> subscriptions.remove(longPoll));
+        subscriptions.add(longPoll);
+        return result;
+    }
+
+    /**
+     * Streams every change after the offset, the id of each event is its offset.
+     */
+    public SseEmitter subscribe(String offset) {
+        SseEmitter emitter = new SseEmitter(deviceChangeProperties.streamTimeout().toMillis());
+        EventStream stream = new EventStream(ChangeOffset.parse(offset), emitter);
+        emitter.onCompletion(() -> subscriptions.remove(stream));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscriptions.remove(stream));
+        subscriptions.add(stream);
+        stream.resume();
+        return emitter;
+    }
+
+    /**
+     * Called after a local transaction with changes commits.
+     */
+    public void requestPoll() {
+        if (!subscriptions.isEmpty() && pollRequested.compareAndSet(false, true)) {
+            applicationTaskExecutor.execute(this::poll);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${mdm.devices.changes.poll-interval}")
+    public synchronized void poll() {
+        pollRequested.set(false);
+        subscriptions.stream().filter(Subscription::isCatchingUp).forEach(Subscription::resume);
+        ChangeOffset from = subscriptions.stream()
+                .filter(subscription -> !subscription.isCatchingUp())
+                .map(Subscription::getOffset)
+                .min(ChangeOffset::compareTo)
+                .orElse(null);
+        if (from == null) {
+            return;
+        }
+        List<DeviceChangeDto> changes;
+        do {
+            changes = deviceChangeRepository.findAfter(from, deviceChangeProperties.batchSize());
+            for (Subscription subscription : subscriptions) {
+                if (subscription.isCatchingUp()) {
+                    continue;
+                }
+                List<DeviceChangeDto> newer = changes.stream()
+                        .filter(change -> ChangeOffset.parse(change.getOffset()).compareTo(subscription.getOffset()) > 0)
+                        .toList();
+                if (!newer.isEmpty()) {
+                    subscription.deliver(newer);
+                }
+            }
+            if (!changes.isEmpty()) {
+                from = ChangeOffset.parse(changes.get(changes.size() - 1).getOffset());
+            }
+        } while (changes.size() == deviceChangeProperties.batchSize() && !subscriptions.isEmpty());
+    }
+
+    @Scheduled(initialDelay = 1, fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purge() {
+        LocalDateTime before = LocalDateTime.now().minus(deviceChangeProperties.retention());
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = deviceChangeRepository.deleteChangedBefore(before, deviceChangeProperties.batchSize());
+            purged += deleted;
+        } while (deleted == deviceChangeProperties.batchSize());
+        if (purged > 0) {
+            log.info(DEVICE_CHANGES_PURGED, purged, before);
+        }
+    }
+
+    /**
+     * Ends open subscriptions before the web server waits for in-flight requests on shutdown, clients resume from
+     * their last offset.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void closeSubscriptions() {
+        subscriptions.forEach(Subscription::close);
+        subscriptions.clear();
+    }
+
+    private static DeviceChangePageDto page(List<DeviceChangeDto> changes, ChangeOffset after) {
+        String nextOffset = changes.isEmpty() ? after.toString() : changes.get(changes.size() - 1).getOffset();
+        return new DeviceChangePageDto(changes, nextOffset);
+    }
+
+    private abstract static class Subscription {
+
+        protected volatile ChangeOffset offset;
+
+        Subscription(ChangeOffset offset) {
+            this.offset = offset;
+        }
+
+        ChangeOffset getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return whether the subscription reads the changes after its offset itself, polls leave it out meanwhile
+         */
+        boolean isCatchingUp() {
+            return false;
+        }
+
+        /**
+         * Continues catching up, after a failed read as well.
+         */
+        void resume() {
+        }
+
+        abstract void deliver(List<DeviceChangeDto> changes);
+
+        abstract void close();
+    }
+
+    private class LongPoll extends Subscription {
+
+        private final int limit;
+        private final DeferredResult<DeviceChangePageDto> result;
+
+        LongPoll(ChangeOffset offset, int limit, DeferredResult<DeviceChangePageDto> result) {
+            super(offset);
+            this.limit = limit;
+            this.result = result;
+        }
+
+        @Override
+        void deliver(List<DeviceChangeDto> changes) {
+            complete(changes.size() > limit ? changes.subList(0, limit) : changes);
+        }
+
+        void complete(List<DeviceChangeDto> changes) {
+            subscriptions.remove(this);
+            result.setResult(page(changes, offset));
+        }
+
+        @Override
+        void close() {
+            complete(List.of());
+        }
+    }
+
+    /**
+     * The offset is that of the last queued change, so that neither polls nor the catch-up queue a change twice or
+     * skip one.
+     */
+    private class EventStream extends Subscription {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<DeviceChangeDto> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean catchingUp = true;
+
+        EventStream(ChangeOffset offset, SseEmitter emitter) {
+            super(offset);
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(deviceChangeProperties.streamBuffer());
+        }
+
+        @Override
+        boolean isCatchingUp() {
+            return catchingUp;
+        }
+
+        @Override
+        void resume() {
+            requestDrain();
+        }
+
+        /**
+         * Stops at the first change that does not fit, the stream catches up from there.
+         */
+        @Override
+        void deliver(List<DeviceChangeDto> changes) {
+            for (DeviceChangeDto change : changes) {
+                if (!queue.offer(change)) {
+                    catchingUp = true;
+                    break;
+                }
+                offset = ChangeOffset.parse(change.getOffset());
+            }
+            requestDrain();
+        }
+
+        private void requestDrain() {
+            if (draining.compareAndSet(false, true)) {
+                applicationTaskExecutor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Runs on one task at a time, changes queued after the queue was found empty start another one. A failed read
+         * while catching up is retried on the next poll.
+         */
+        private void drain() {
+            try {
+                while (true) {
+                    DeviceChangeDto change = queue.poll();
+                    if (change == null && (!catchingUp || !catchUp())) {
+                        break;
+                    }
+                    if (change != null) {
+                        emitter.send(SseEmitter.event()
+                                .id(change.getOffset())
+                                .name(change.getType().name())
+                                .data(change));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                subscriptions.remove(this);
+                queue.clear();
+                emitter.completeWithError(e);
+                return;
+            } catch (RuntimeException e) {
+                log.warn(DEVICE_CHANGES_NOT_READ, offset, e);
+            } finally {
+                draining.set(false);
+            }
+            if (!queue.isEmpty()) {
+                requestDrain();
+            }
+        }
+
+        /**
+         * Queues the next batch after the offset into the empty queue, a short batch means the stream is caught up
+         * and the polls take over.
+         *
+         * @return whether changes were queued
+         */
+        private boolean catchUp() {
+            int limit = Math.min(deviceChangeProperties.batchSize(), deviceChangeProperties.streamBuffer());
+            List<DeviceChangeDto> changes = deviceChangeRepository.findAfter(offset, limit);
+            for (DeviceChangeDto change : changes) {
+                queue.add(change);
+                offset = ChangeOffset.parse(change.getOffset());
+            }
+            if (changes.size() < limit) {
+                catchingUp = false;
+            }
+            return !changes.isEmpty();
+        }
+
+        @Override
+        void close() {
+            emitter.complete();
+        }
+    }
+}
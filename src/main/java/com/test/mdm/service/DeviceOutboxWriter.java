@@ -0,0 +1,58 @@
+package com.test.mdm.service;
+
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.repository.DeviceChangeRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes device changes to the outbox in the transaction that made them. Changes are collected per transaction and
+ * inserted with one statement right before it commits, so bulk operations do not pay a round trip per device.
+ */
+@Component
+@RequiredArgsConstructor
+public class DeviceOutboxWriter {
+
+    private final DeviceChangeRepository deviceChangeRepository;
+    private final DeviceChangeFeed deviceChangeFeed;
+
+    @EventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            deviceChangeRepository.insertAll(List.of(event));
+            deviceChangeFeed.requestPoll();
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(event);
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final List<DeviceChangedEvent> changes = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            deviceChangeRepository.insertAll(changes);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(DeviceOutboxWriter.this);
+            if (status == STATUS_COMMITTED) {
+                deviceChangeFeed.requestPoll();
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.test.mdm.service;
+
+import com.test.mdm.config.DataSourceRouting;
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.util.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_DEVICE_ID;
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_ID;
+
+/**
+ * Read-through device caches whose misses are loaded once per key: concurrent readers of a key, single or batch,
+ * share one read-only transaction and query. Only reads that started after the last eviction of a key may cache
+ * it, so evicting a changed device also cuts it from the loads in flight, see {@link SingleFlight}.
+ */
+@Component
+public class DeviceReadCoalescer {
+
+    private static final String LOADS_METRIC = "mdm.devices.reads.loads";
+    private static final String COALESCED_METRIC = "mdm.devices.reads.coalesced";
+
+    private final CacheManager cacheManager;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Map<String, SingleFlight<Long, DeviceDto>> flights = new HashMap<>();
+
+    public DeviceReadCoalescer(CacheManager cacheManager, PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        register(DEVICES_BY_ID, "id", meterRegistry);
+        register(DEVICES_BY_DEVICE_ID, "deviceId", meterRegistry);
+    }
+
+    /**
+     * @param loader loads the device, null when there is none
+     * @return cached or loaded device, null when there is none
+     */
+    public DeviceDto find(String cacheName, Long key, Supplier<DeviceDto> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        DeviceDto device = cache == null ? null : cache.get(key, DeviceDto.class);
+        if (device != null) {
+            return device;
+        }
+        return flights.get(cacheName).execute(key,
+                () -> load(loader),
+                (loadedKey, loaded) -> put(cache, loadedKey, loaded));
+    }
+
+    /**
+     * Non-blocking {@link #find} for loaders that do not run on the calling thread, like the R2DBC reads of the
+     * reactive stack. The loader brings its own transaction, if any.
+     *
+     * @param loader starts loading the device, completes with null when there is none
+     * @return cached or pending device, null when there is none
+     */
+    public CompletableFuture<DeviceDto> findAsync(String cacheName, Long key,
+                                                  Supplier<CompletableFuture<DeviceDto>> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        DeviceDto device = cache == null ? null : cache.get(key, DeviceDto.class);
+        if (device != null) {
+            return CompletableFuture.completedFuture(device);
+        }
+        return flights.get(cacheName).executeAsync(key, loader, (loadedKey, loaded) -> put(cache, loadedKey, loaded));
+    }
+
+    /**
+     * @param keyOf  key of a loaded device in this cache
+     * @param loader loads the devices of the given keys in any order, unknown keys are skipped
+     * @return cached or loaded devices by key, keys without a device are left out
+     */
+    public Map<Long, DeviceDto> findAll(String cacheName, Collection<Long> keys, Function<DeviceDto, Long> keyOf,
+                                        Function<Collection<Long>, List<DeviceDto>> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        Map<Long, DeviceDto> devices = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long key : keys) {
+            DeviceDto device = cache == null ? null : cache.get(key, DeviceDto.class);
+            if (device == null) {
+                misses.add(key);
+            } else {
+                devices.put(key, device);
+            }
+        }
+        if (!misses.isEmpty()) {
+            devices.putAll(flights.get(cacheName).executeAll(misses,
+                    missing -> byKey(load(() -> loader.apply(missing)), keyOf),
+                    (loadedKey, loaded) -> put(cache, loadedKey, loaded)));
+        }
+        return devices;
+    }
+
+    /**
+     * Detaches the load in flight of the device, then evicts it. In that order no load that started before can cache
+     * the device again.
+     */
+    public void evict(String cacheName, Long key) {
+        flights.get(cacheName).forget(key);
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evictIfPresent(key);
+        }
+    }
+
+    public void clear(String cacheName) {
+        flights.get(cacheName).forgetAll();
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private void register(String cacheName, String lookup, MeterRegistry meterRegistry) {
+        SingleFlight<Long, DeviceDto> flight = new SingleFlight<>();
+        flights.put(cacheName, flight);
+        FunctionCounter.builder(LOADS_METRIC, flight, SingleFlight::calls)
+                .description("Device loads on cache misses, every load serves all concurrent readers of its keys")
+                .tag("lookup", lookup)
+                .register(meterRegistry);
+        FunctionCounter.builder(COALESCED_METRIC, flight, SingleFlight::coalesced)
+                .description("Device reads served by the load of another concurrent reader")
+                .tag("lookup", lookup)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads in a read-only transaction on the primary, a replica may not have replayed the change whose eviction
+     * this load follows, and would put the stale device back in the cache.
+     */
+    private <T> T load(Supplier<T> loader) {
+        return DataSourceRouting.onPrimary(() -> readOnlyTransactionTemplate.execute(status -> loader.get()));
+    }
+
+    private static Map<Long, DeviceDto> byKey(List<DeviceDto> devices, Function<DeviceDto, Long> keyOf) {
+        Map<Long, DeviceDto> byKey = new HashMap<>();
+        devices.forEach(device -> byKey.put(keyOf.apply(device), device));
+        return byKey;
+    }
+
+    private static void put(Cache cache, Long key, DeviceDto device) {
+        if (cache != null) {
+            cache.put(key, device);
+        }
+    }
+}
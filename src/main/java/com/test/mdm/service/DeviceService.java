@@ -1,19 +1,53 @@
 package com.test.mdm.service;
 
+import com.test.mdm.config.DeviceArchiveProperties;
+import com.test.mdm.config.DeviceProperties;
+import com.test.mdm.dto.DeviceBatchDto;
 import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.DevicePageDto;
+import com.test.mdm.dto.request.DeviceBatchRequest;
+import com.test.mdm.dto.request.DeviceFilter;
+import com.test.mdm.dto.request.DeviceSortField;
 import com.test.mdm.dto.request.DeviceRequest;
 import com.test.mdm.dto.request.UpdateDeviceStatusRequest;
 import com.test.mdm.entity.DeviceEntity;
 import com.test.mdm.entity.Status;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.exception.DeviceException;
+import com.test.mdm.exception.NotFoundException;
+import com.test.mdm.exception.PreconditionFailedException;
+import com.test.mdm.repository.DeviceJdbcRepository;
 import com.test.mdm.repository.DeviceRepository;
 import com.test.mdm.util.AssertUtil;
+import com.test.mdm.util.DeviceCursor;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_DEVICE_ID;
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_ID;
+import static com.test.mdm.config.MetricsConfig.DEVICE_OPERATION_METRIC;
+import static com.test.mdm.config.MetricsConfig.DEVICE_ROWS_METRIC;
+import static com.test.mdm.config.MetricsConfig.OPERATION_TAG;
 import static com.test.mdm.util.Constant.*;
 
 @Slf4j
@@ -22,59 +56,199 @@ import static com.test.mdm.util.Constant.*;
 public class DeviceService {
 
     private final DeviceRepository deviceRepository;
+    private final DeviceJdbcRepository deviceJdbcRepository;
+    private final DeviceProperties deviceProperties;
+    private final DeviceArchiveProperties deviceArchiveProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final DeviceReadCoalescer deviceReadCoalescer;
 
+    @Timed(value = DEVICE_OPERATION_METRIC, extraTags = {OPERATION_TAG, "getDevices"}, histogram = true)
     @Transactional(readOnly = true)
-    public List<DeviceDto> getDevices() {
-        return deviceRepository.findAll().stream().map(DeviceEntity::toDto).toList();
+    public void streamDevices(Consumer<DeviceDto> consumer) {
+        int[] rows = {0};
+        try (Stream<DeviceDto> devices = deviceRepository.streamAllDtos()) {
+            devices.forEach(device -> {
+                consumer.accept(device);
+                rows[0]++;
+            });
+        } finally {
+            recordRows("getDevices", rows[0]);
+        }
     }
 
+    @Timed(value = DEVICE_OPERATION_METRIC, extraTags = {OPERATION_TAG, "getDevicesPage"}, histogram = true)
     @Transactional(readOnly = true)
-    public DeviceDto getDeviceById(Long id) {
-        DeviceEntity device = AssertUtil.notNull(deviceRepository.findById(id),
-                String.format(DEVICE_WITH_ID_NOT_FOUND, id));
-        return device.toDto();
+    public DevicePageDto getDevicesPage(String cursor, Integer size) {
+        int pageSize = deviceProperties.page().resolve(size);
+        List<DeviceDto> devices = deviceRepository
+                .findDtosByIdGreaterThan(DeviceCursor.decode(cursor), Limit.of(pageSize + 1));
+        recordRows("getDevicesPage", Math.min(devices.size(), pageSize));
+        if (devices.size() <= pageSize) {
+            return new DevicePageDto(devices, null);
+        }
+        List<DeviceDto> page = devices.subList(0, pageSize);
+        return new DevicePageDto(page, DeviceCursor.encode(page.get(pageSize - 1).getId()));
     }
 
+    @Timed(value = DEVICE_OPERATION_METRIC, extraTags = {OPERATION_TAG, "searchDevices"}, histogram = true)
     @Transactional(readOnly = true)
+    public DevicePageDto searchDevices(DeviceFilter filter, DeviceSortField sortField, Sort.Direction direction,
+                                       String cursor, Integer size) {
+        int pageSize = deviceProperties.page().resolve(size);
+        List<DeviceDto> devices = deviceJdbcRepository.search(filter, sortField, direction,
+                DeviceCursor.decode(cursor, sortField), pageSize + 1);
+        recordRows("searchDevices", Math.min(devices.size(), pageSize));
+        if (devices.size() <= pageSize) {
+            return new DevicePageDto(devices, null);
+        }
+        List<DeviceDto> page = devices.subList(0, pageSize);
+        return new DevicePageDto(page, DeviceCursor.encode(sortField, page.get(pageSize - 1)));
+    }
+
+    /**
+     * Cached, concurrent misses of the same id share one load, see {@link DeviceReadCoalescer}.
+     */
+    @Timed(value = DEVICE_OPERATION_METRIC, extraTags = {OPERATION_TAG, "getDeviceById"}, histogram = true)
+    public DeviceDto getDeviceById(Long id) {
+        DeviceDto device = deviceReadCoalescer.find(DEVICES_BY_ID, id,
+                () -> deviceRepository.findById(id).map(DeviceEntity::toDto).orElse(null));
+        return AssertUtil.notNull(Optional.ofNullable(device), String.format(DEVICE_WITH_ID_NOT_FOUND, id));
+    }
+
+    @Timed(value = DEVICE_OPERATION_METRIC, extraTags = {OPERATION_TAG, "getDevicesByDeviceId"}, histogram = true)
     public DeviceDto getDevicesByDeviceId(Long deviceId) {
-        DeviceEntity device = AssertUtil.notNull(deviceRepository.findByDeviceId(deviceId),
-                String.format(DEVICE_WITH_DEVICE_ID_NOT_FOUND, deviceId));
-        return device.toDto();
+        DeviceDto device = deviceReadCoalescer.find(DEVICES_BY_DEVICE_ID, deviceId,
+                () -> deviceRepository.findByDeviceId(deviceId).map(DeviceEntity::toDto).orElse(null));
+        return AssertUtil.notNull(Optional.ofNullable(device), String.format(DEVICE_WITH_DEVICE_ID_NOT_FOUND, deviceId));
+    }
+
+    /**
+     * Devices by id and by deviceId, served from the caches of the single lookups where present and with one query
+     * per key kind for the rest, shared with concurrent reads of the same keys. Loaded devices are cached for the
+     * single lookups too. A batch served from the caches does not take a connection.
+     */
+    @Timed(value = DEVICE_OPERATION_METRIC, extraTags = {OPERATION_TAG, "getDevicesBatch"}, histogram = true)
+    public DeviceBatchDto getDevicesBatch(DeviceBatchRequest request) {
+        Set<Long> ids = distinctKeys(request.getIds());
+        Set<Long> deviceIds = distinctKeys(request.getDeviceIds());
+        Map<Long, DeviceDto> byId = deviceReadCoalescer.findAll(DEVICES_BY_ID, ids, DeviceDto::getId,
+                deviceJdbcRepository::findByIds);
+        Map<Long, DeviceDto> byDeviceId = deviceReadCoalescer.findAll(DEVICES_BY_DEVICE_ID, deviceIds,
+                DeviceDto::getDeviceId, deviceJdbcRepository::findByDeviceIds);
+
+        Map<Long, DeviceDto> items = new LinkedHashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        List<Long> missingDeviceIds = new ArrayList<>();
+        collect(ids, byId, items, missingIds);
+        collect(deviceIds, byDeviceId, items, missingDeviceIds);
+        recordRows("getDevicesBatch", items.size());
+        return new DeviceBatchDto(new ArrayList<>(items.values()), missingIds, missingDeviceIds);
     }
 
+    @Timed(value = DEVICE_OPERATION_METRIC, extraTags = {OPERATION_TAG, "create"}, histogram = true)
     @Transactional
     public DeviceDto createDevice(DeviceRequest deviceRequest) {
         DeviceEntity device = deviceRequest.toDeviceEntity(new DeviceEntity());
         DeviceDto savedDevice = deviceRepository.save(device).toDto();
+        eventPublisher.publishEvent(new DeviceChangedEvent(ChangeType.CREATED, savedDevice.getId(), savedDevice.getDeviceId()));
         log.info("Created new device: {}", savedDevice);
         return savedDevice;
     }
 
+    @Timed(value = DEVICE_OPERATION_METRIC, extraTags = {OPERATION_TAG, "update"}, histogram = true)
     @Transactional
-    public DeviceDto updateDevice(Long id, DeviceRequest createDeviceRequest) {
+    public DeviceDto updateDevice(Long id, DeviceRequest createDeviceRequest, Long expectedVersion) {
         DeviceEntity device = AssertUtil.notNull(deviceRepository.findById(id),
                 String.format(DEVICE_WITH_ID_NOT_FOUND, id));
+        if (expectedVersion != null && !expectedVersion.equals(device.getVersion())) {
+            throw new PreconditionFailedException(String.format(DEVICE_PRECONDITION_FAILED, id, expectedVersion));
+        }
+        Long previousDeviceId = device.getDeviceId();
         device = createDeviceRequest.toDeviceEntity(device);
-        DeviceDto savedDevice = deviceRepository.save(device).toDto();
+        // flushed here so that the returned version is the incremented one
+        DeviceDto savedDevice = deviceRepository.saveAndFlush(device).toDto();
+        eventPublisher.publishEvent(new DeviceChangedEvent(ChangeType.UPDATED, savedDevice.getId(),
+                savedDevice.getDeviceId(), previousDeviceId));
         log.info(DEVICE_SUCCESSFULLY_UPDATED, savedDevice.getId(), savedDevice);
         return savedDevice;
     }
 
+    @Timed(value = DEVICE_OPERATION_METRIC, extraTags = {OPERATION_TAG, "updateStatus"}, histogram = true)
     @Transactional
-    public DeviceDto updateDeviceStatus(Long id, UpdateDeviceStatusRequest updateDeviceStatusRequest) {
-        DeviceEntity device = AssertUtil.notNull(deviceRepository.findById(id),
-                String.format(DEVICE_WITH_ID_NOT_FOUND, id));
-        device.setStatus(Status.valueOf(updateDeviceStatusRequest.getStatus()));
-        DeviceDto savedDevice = deviceRepository.save(device).toDto();
+    public DeviceDto updateDeviceStatus(Long id, UpdateDeviceStatusRequest updateDeviceStatusRequest,
+                                        Long expectedVersion) {
+        Status status = Status.valueOf(updateDeviceStatusRequest.getStatus());
+        DeviceEntity device = (expectedVersion == null
+                ? deviceRepository.updateStatusById(id, status.name())
+                : deviceRepository.updateStatusByIdAndVersion(id, status.name(), expectedVersion))
+                .orElseThrow(() -> missingOrModified(id, expectedVersion));
+        DeviceDto savedDevice = device.toDto();
+        eventPublisher.publishEvent(new DeviceChangedEvent(ChangeType.STATUS_UPDATED, savedDevice.getId(),
+                savedDevice.getDeviceId()));
         log.info(DEVICE_STATUS_SUCCESSFULLY_UPDATED, savedDevice.getId(), savedDevice.getStatus());
         return savedDevice;
     }
 
+    @Timed(value = DEVICE_OPERATION_METRIC, extraTags = {OPERATION_TAG, "delete"}, histogram = true)
     @Transactional
-    public void deleteDevice(Long id) {
-        DeviceEntity device = AssertUtil.notNull(deviceRepository.findById(id),
-                String.format(DEVICE_WITH_ID_NOT_FOUND, id));
-        deviceRepository.delete(device);
-        log.info(DEVICE_DELETED, id);
+    public void deleteDevice(Long id, Long expectedVersion) {
+        boolean archive = deviceArchiveProperties.deleteMode() == DeviceArchiveProperties.DeleteMode.ARCHIVE;
+        Optional<Long> removed;
+        if (archive) {
+            removed = expectedVersion == null
+                    ? deviceRepository.archiveByIdReturningDeviceId(id)
+                    : deviceRepository.archiveByIdAndVersionReturningDeviceId(id, expectedVersion);
+        } else {
+            removed = expectedVersion == null
+                    ? deviceRepository.deleteByIdReturningDeviceId(id)
+                    : deviceRepository.deleteByIdAndVersionReturningDeviceId(id, expectedVersion);
+        }
+        Long deviceId = removed.orElseThrow(() -> missingOrModified(id, expectedVersion));
+        eventPublisher.publishEvent(new DeviceChangedEvent(ChangeType.DELETED, id, deviceId));
+        log.info(archive ? DEVICE_ARCHIVED : DEVICE_DELETED, id);
+    }
+
+    /**
+     * A conditional write matched no row, either the device is gone or it has another version.
+     */
+    private DeviceException missingOrModified(Long id, Long expectedVersion) {
+        if (expectedVersion != null && deviceRepository.existsById(id)) {
+            return new PreconditionFailedException(String.format(DEVICE_PRECONDITION_FAILED, id, expectedVersion));
+        }
+        return new NotFoundException(String.format(DEVICE_WITH_ID_NOT_FOUND, id));
+    }
+
+    /**
+     * Adds the found devices in key order, a device requested by both id and deviceId is added once.
+     */
+    private static void collect(Set<Long> keys, Map<Long, DeviceDto> found, Map<Long, DeviceDto> items,
+                                List<Long> missing) {
+        for (Long key : keys) {
+            DeviceDto device = found.get(key);
+            if (device == null) {
+                missing.add(key);
+            } else {
+                items.putIfAbsent(device.getId(), device);
+            }
+        }
+    }
+
+    private static Set<Long> distinctKeys(List<Long> keys) {
+        Set<Long> distinct = new LinkedHashSet<>();
+        if (keys != null) {
+            keys.stream().filter(Objects::nonNull).forEach(distinct::add);
+        }
+        return distinct;
+    }
+
+    private void recordRows(String operation, int rows) {
+        DistributionSummary.builder(DEVICE_ROWS_METRIC)
+                .description("Devices returned by a list operation")
+                .baseUnit("rows")
+                .tag(OPERATION_TAG, operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(rows);
     }
 }
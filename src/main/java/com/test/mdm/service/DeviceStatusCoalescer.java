@@ -0,0 +1,385 @@
+package com.test.mdm.service;
+
+import com.test.mdm.config.DeviceStatusCoalescingProperties;
+import com.test.mdm.config.DeviceStatusCoalescingProperties.Durability;
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.request.UpdateDeviceStatusRequest;
+import com.test.mdm.entity.Status;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.exception.NotFoundException;
+import com.test.mdm.exception.ServiceOverloadedException;
+import com.test.mdm.repository.DeviceJdbcRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.test.mdm.config.MetricsConfig.DEVICE_OPERATION_METRIC;
+import static com.test.mdm.config.MetricsConfig.OPERATION_TAG;
+import static com.test.mdm.util.Constant.DEVICE_STATUSES_DROPPED;
+import static com.test.mdm.util.Constant.DEVICE_STATUSES_LOST;
+import static com.test.mdm.util.Constant.DEVICE_STATUSES_NOT_WRITTEN;
+import static com.test.mdm.util.Constant.DEVICE_STATUSES_WRITTEN;
+import static com.test.mdm.util.Constant.DEVICE_STATUS_SUPERSEDED;
+import static com.test.mdm.util.Constant.DEVICE_WITH_ID_NOT_FOUND;
+import static com.test.mdm.util.Constant.SERVICE_OVERLOADED;
+
+/**
+ * Write-behind of unconditional status updates, enabled with {@code mdm.devices.status-coalescing.enabled}, for
+ * devices whose status flaps faster than a transaction per change is worth. Statuses are buffered per device and a
+ * later status replaces one that is not written yet. A single thread writes the buffer every {@code flush-interval},
+ * or as soon as a batch is full, with one UPDATE and one commit per batch. When the buffer is full, or the instance
+ * is stopping, statuses are written directly. A direct write replaces the device's buffered status and waits for a
+ * batch writing an earlier one, so that no earlier status is committed after it.
+ */
+@Slf4j
+@Service
+public class DeviceStatusCoalescer implements SmartLifecycle {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    private final Map<Long, PendingStatus> pending = new ConcurrentHashMap<>();
+    // statuses are buffered under the read lock, so that none is buffered after the final flush
+    private final ReadWriteLock stopping = new ReentrantReadWriteLock();
+    // held by the writer for a batch, the devices of which are in flight until it is written or buffered again
+    private final Lock flushing = new ReentrantLock();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    // orders buffered and direct writes, a buffered status earlier than a direct write of its device is not written
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Long> writingDirectly = new ConcurrentHashMap<>();
+    private final DeviceService deviceService;
+    private final DeviceJdbcRepository deviceJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DeviceStatusCoalescingProperties properties;
+    private final Timer lag;
+    private final Counter coalesced;
+    private final Counter overflow;
+    private final Counter dropped;
+    private final DistributionSummary batchSize;
+    private volatile boolean running;
+    private Thread writer;
+
+    public DeviceStatusCoalescer(DeviceService deviceService, DeviceJdbcRepository deviceJdbcRepository,
+                                 TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher,
+                                 DeviceStatusCoalescingProperties properties, MeterRegistry meterRegistry) {
+        this.deviceService = deviceService;
+        this.deviceJdbcRepository = deviceJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+        this.lag = Timer.builder("mdm.devices.status.coalescing.lag")
+                .description("Time from buffering a device status to committing it")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("mdm.devices.status.coalescing.coalesced")
+                .description("Buffered statuses replaced by a later status before being written")
+                .register(meterRegistry);
+        this.overflow = Counter.builder("mdm.devices.status.coalescing.overflow")
+                .description("Statuses written directly because the buffer was full or stopped")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("mdm.devices.status.coalescing.dropped")
+                .description("Buffered statuses dropped after their last failed write")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("mdm.devices.status.coalescing.batch")
+                .description("Devices written per batch")
+                .baseUnit("rows")
+                .register(meterRegistry);
+        Gauge.builder("mdm.devices.status.coalescing.pending", pending, Map::size)
+                .description("Devices with a buffered status")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * @return the updated device, {@code null} with {@link Durability#ASYNC} where the status is only buffered
+     */
+    @Timed(value = DEVICE_OPERATION_METRIC, extraTags = {OPERATION_TAG, "updateStatusCoalesced"}, histogram = true)
+    public DeviceDto updateDeviceStatus(Long id, UpdateDeviceStatusRequest updateDeviceStatusRequest) {
+        Status status = Status.valueOf(updateDeviceStatusRequest.getStatus());
+        CompletableFuture<DeviceDto> written = properties.durability() == Durability.SYNC
+                ? new CompletableFuture<>()
+                : null;
+        if (!buffer(id, status, written)) {
+            overflow.increment();
+            return writeDirectly(id, updateDeviceStatusRequest);
+        }
+        if (written == null) {
+            return null;
+        }
+        try {
+            return written.get(properties.syncTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw overloaded();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw overloaded();
+        }
+    }
+
+    private DeviceDto writeDirectly(Long id, UpdateDeviceStatusRequest updateDeviceStatusRequest) {
+        long written = sequence.incrementAndGet();
+        writingDirectly.merge(id, written, Math::max);
+        List<CompletableFuture<DeviceDto>> waiters = new ArrayList<>();
+        try {
+            pending.computeIfPresent(id, (key, current) -> {
+                if (current.sequence > written) {
+                    return current;
+                }
+                waiters.addAll(current.waiters);
+                coalesced.increment();
+                return null;
+            });
+            if (inFlight.contains(id)) {
+                awaitFlush();
+            }
+            DeviceDto device = deviceService.updateDeviceStatus(id, updateDeviceStatusRequest, null);
+            waiters.forEach(waiter -> waiter.complete(device));
+            return device;
+        } catch (RuntimeException e) {
+            waiters.forEach(waiter -> waiter.completeExceptionally(e));
+            throw e;
+        } finally {
+            writingDirectly.remove(id, written);
+        }
+    }
+
+    private void awaitFlush() {
+        try {
+            if (!flushing.tryLock(properties.syncTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw overloaded();
+            }
+            flushing.unlock();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw overloaded();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::write, "device-status-writer");
+        // a writer stuck on the database does not keep the JVM alive past stop
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        stopping.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stopping.writeLock().unlock();
+        }
+        LockSupport.unpark(writer);
+        try {
+            writer.join(properties.stopTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn(DEVICE_STATUSES_LOST, pending.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private boolean buffer(Long id, Status status, CompletableFuture<DeviceDto> written) {
+        stopping.readLock().lock();
+        try {
+            if (!running) {
+                return false;
+            }
+            PendingStatus buffered = pending.compute(id, (key, current) -> {
+                if (current == null) {
+                    if (pending.size() >= properties.maxPending()) {
+                        return null;
+                    }
+                    current = new PendingStatus(System.nanoTime());
+                } else {
+                    coalesced.increment();
+                }
+                current.status = status;
+                current.sequence = sequence.incrementAndGet();
+                if (written != null) {
+                    current.waiters.add(written);
+                }
+                return current;
+            });
+            if (buffered != null && pending.size() >= properties.maxBatchSize()) {
+                LockSupport.unpark(writer);
+            }
+            return buffered != null;
+        } finally {
+            stopping.readLock().unlock();
+        }
+    }
+
+    private void write() {
+        long interval = properties.flushInterval().toNanos();
+        while (running) {
+            if (pending.size() < properties.maxBatchSize()) {
+                LockSupport.parkNanos(this, interval);
+            }
+            flush();
+        }
+        while (!pending.isEmpty()) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes up to one batch of buffered statuses. A failed batch fails its waiting requests, statuses nobody waits
+     * for are buffered again unless a later status replaced them meanwhile, and are left out of the batches until
+     * their backoff passed. On stop the backoff is not waited for, the attempts are still counted.
+     */
+    void flush() {
+        flushing.lock();
+        try {
+            flushBatch();
+        } finally {
+            inFlight.clear();
+            flushing.unlock();
+        }
+    }
+
+    private void flushBatch() {
+        long now = System.nanoTime();
+        Map<Long, PendingStatus> batch = new HashMap<>();
+        for (Map.Entry<Long, PendingStatus> entry : pending.entrySet()) {
+            if (batch.size() == properties.maxBatchSize()) {
+                break;
+            }
+            if (running && entry.getValue().retryAt - now > 0) {
+                continue;
+            }
+            Long id = entry.getKey();
+            // in flight before it leaves the buffer, so that a direct write of the device finds it in either
+            inFlight.add(id);
+            PendingStatus removed = pending.remove(id);
+            if (removed != null) {
+                batch.put(id, removed);
+            } else {
+                inFlight.remove(id);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        // sorted, so that concurrent batches and single updates lock their rows in the same order
+        Map<Long, Status> statuses = new TreeMap<>();
+        batch.forEach((id, buffered) -> statuses.put(id, buffered.status));
+        List<DeviceDto> devices;
+        try {
+            devices = transactionTemplate.execute(transaction -> {
+                List<DeviceDto> updated = deviceJdbcRepository.updateStatuses(statuses);
+                updated.forEach(device -> eventPublisher.publishEvent(
+                        new DeviceChangedEvent(ChangeType.STATUS_UPDATED, device.getId(), device.getDeviceId())));
+                return updated;
+            });
+        } catch (RuntimeException e) {
+            log.error(DEVICE_STATUSES_NOT_WRITTEN, batch.size(), e);
+            int droppedStatuses = 0;
+            for (Map.Entry<Long, PendingStatus> entry : batch.entrySet()) {
+                PendingStatus buffered = entry.getValue();
+                if (!buffered.waiters.isEmpty()) {
+                    buffered.waiters.forEach(waiter -> waiter.completeExceptionally(e));
+                } else if (writingDirectly.getOrDefault(entry.getKey(), Long.MIN_VALUE) > buffered.sequence) {
+                    log.debug(DEVICE_STATUS_SUPERSEDED, entry.getKey());
+                } else if (++buffered.attempts >= properties.maxAttempts()) {
+                    droppedStatuses++;
+                } else {
+                    int shift = Math.min(buffered.attempts - 1, MAX_BACKOFF_SHIFT);
+                    buffered.retryAt = System.nanoTime() + (properties.retryBackoff().toNanos() << shift);
+                    pending.putIfAbsent(entry.getKey(), buffered);
+                }
+            }
+            if (droppedStatuses > 0) {
+                dropped.increment(droppedStatuses);
+                log.error(DEVICE_STATUSES_DROPPED, droppedStatuses, properties.maxAttempts());
+            }
+            return;
+        }
+        long writtenAt = System.nanoTime();
+        batchSize.record(batch.size());
+        for (DeviceDto device : devices) {
+            PendingStatus buffered = batch.remove(device.getId());
+            lag.record(writtenAt - buffered.bufferedAt, TimeUnit.NANOSECONDS);
+            buffered.waiters.forEach(waiter -> waiter.complete(device));
+        }
+        batch.forEach((id, buffered) -> buffered.waiters.forEach(waiter -> waiter.completeExceptionally(
+                new NotFoundException(String.format(DEVICE_WITH_ID_NOT_FOUND, id)))));
+        log.debug(DEVICE_STATUSES_WRITTEN, devices.size(), batch.size());
+    }
+
+    private static ServiceOverloadedException overloaded() {
+        return new ServiceOverloadedException(SERVICE_OVERLOADED.formatted(RETRY_AFTER.toSeconds()), RETRY_AFTER);
+    }
+
+    /**
+     * Mutated only inside {@link ConcurrentHashMap#compute}, read once removed from the buffer. The attempts and the
+     * backoff are set by the writer before the status is buffered again. The sequence is that of the last buffered
+     * status.
+     */
+    private static final class PendingStatus {
+
+        private final long bufferedAt;
+        private final List<CompletableFuture<DeviceDto>> waiters = new ArrayList<>(1);
+        private Status status;
+        private long sequence;
+        private int attempts;
+        private long retryAt;
+
+        private PendingStatus(long bufferedAt) {
+            this.bufferedAt = bufferedAt;
+            this.retryAt = bufferedAt;
+        }
+    }
+}
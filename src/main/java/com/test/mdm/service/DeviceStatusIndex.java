@@ -0,0 +1,243 @@
+package com.test.mdm.service;
+
+import com.test.mdm.config.DataSourceRouting;
+import com.test.mdm.dto.DeviceStatusDto;
+import com.test.mdm.entity.Status;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.event.DeviceInvalidationBus;
+import com.test.mdm.event.DeviceInvalidationListener;
+import com.test.mdm.exception.NotFoundException;
+import com.test.mdm.repository.DeviceJdbcRepository;
+import com.test.mdm.util.LongByteHashMap;
+import com.test.mdm.util.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.test.mdm.util.Constant.DEVICE_STATUS_INDEX_LOADED;
+import static com.test.mdm.util.Constant.DEVICE_STATUS_INDEX_NOT_LOADED;
+import static com.test.mdm.util.Constant.DEVICE_WITH_DEVICE_ID_NOT_FOUND;
+import static com.test.mdm.util.LongByteHashMap.NO_VALUE;
+
+/**
+ * Status of every device by deviceId, one byte per device in a {@link LongByteHashMap}, so that checking whether a
+ * device is blocked neither takes a connection nor builds a device. The index is loaded by streaming the device
+ * table once the application is ready, and again when changes of other instances may have been missed.
+ * <p>
+ * Committed changes, of this instance and of the others, mark the statuses of their deviceIds stale. The next check
+ * of a stale device loads its status once for all concurrent checks. Changes are marked instead of applied: their
+ * events carry no status, and commits of the same device may be delivered out of order.
+ */
+@Slf4j
+@Component
+public class DeviceStatusIndex implements DeviceInvalidationListener {
+
+    private static final String METRIC_PREFIX = "mdm.devices.status.index";
+    private static final byte STALE = -1;
+    private static final Status[] STATUSES = Status.values();
+
+    private final DeviceJdbcRepository deviceJdbcRepository;
+    private final DeviceInvalidationBus deviceInvalidationBus;
+    private final TaskExecutor applicationTaskExecutor;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final SingleFlight<Long, Byte> flights = new SingleFlight<>();
+    private final AtomicBoolean loadRequested = new AtomicBoolean();
+    // not a monitor, a virtual thread streaming the table under it would pin its carrier
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private volatile LongByteHashMap statuses = new LongByteHashMap();
+    /**
+     * Index being loaded, changes are marked in it too.
+     */
+    private volatile LongByteHashMap loading;
+    private volatile boolean loaded;
+
+    public DeviceStatusIndex(DeviceJdbcRepository deviceJdbcRepository,
+                             DeviceInvalidationBus deviceInvalidationBus,
+                             TaskExecutor applicationTaskExecutor,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry) {
+        this.deviceJdbcRepository = deviceJdbcRepository;
+        this.deviceInvalidationBus = deviceInvalidationBus;
+        this.applicationTaskExecutor = applicationTaskExecutor;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        Gauge.builder(METRIC_PREFIX + ".devices", this, index -> index.statuses.size())
+                .description("Devices in the status index")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".memory", this, index -> index.statuses.memoryBytes())
+                .description("Memory held by the status index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".memory.per.million", this, DeviceStatusIndex::memoryPerMillion)
+                .description("Memory held by the status index per million devices")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + ".loads", flights, SingleFlight::calls)
+                .description("Status checks of stale or not yet indexed devices answered from the database")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        deviceInvalidationBus.subscribe(this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestLoad();
+    }
+
+    /**
+     * Until the index is loaded statuses are read from the database.
+     */
+    public DeviceStatusDto getDeviceStatus(Long deviceId) {
+        byte status = statuses.get(deviceId);
+        if (status == STALE || status == NO_VALUE && !loaded) {
+            status = load(deviceId);
+        }
+        return toDto(deviceId, status);
+    }
+
+    /**
+     * Answers from memory only, for callers that must not block on a query.
+     *
+     * @return the status, {@code null} when it is stale or not indexed yet and {@link #getDeviceStatus} has to load it
+     */
+    public DeviceStatusDto getIndexedStatus(Long deviceId) {
+        byte status = statuses.get(deviceId);
+        if (status == STALE || status == NO_VALUE && !loaded) {
+            return null;
+        }
+        return toDto(deviceId, status);
+    }
+
+    /**
+     * @return whether {@link #getDeviceStatus} answers from memory, without a query
+     */
+    public boolean isIndexed(Long deviceId) {
+        byte status = statuses.get(deviceId);
+        return status != STALE && (status != NO_VALUE || loaded);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        markStale(event);
+    }
+
+    @Override
+    public void onRemoteChanges(List<DeviceChangedEvent> changes) {
+        changes.forEach(this::markStale);
+    }
+
+    @Override
+    public void onChangesLost() {
+        requestLoad();
+    }
+
+    public void requestLoad() {
+        if (loadRequested.compareAndSet(false, true)) {
+            applicationTaskExecutor.execute(this::loadAll);
+        }
+    }
+
+    /**
+     * Streams the device table into a new index and swaps it in. Changes committed while streaming may or may not be
+     * in the stream, they are marked stale in the new index and the stream does not overwrite them.
+     */
+    public void loadAll() {
+        loadLock.lock();
+        try {
+            loadRequested.set(false);
+            long start = System.nanoTime();
+            LongByteHashMap next = new LongByteHashMap(statuses.size());
+            loading = next;
+            try {
+                DataSourceRouting.onPrimary(() -> readOnlyTransactionTemplate.execute(transaction -> {
+                    deviceJdbcRepository.streamStatuses(
+                            (status, deviceId) -> next.putIfAbsent(deviceId, encode(status)));
+                    return null;
+                }));
+            } catch (RuntimeException e) {
+                loading = null;
+                log.error(DEVICE_STATUS_INDEX_NOT_LOADED, e);
+                return;
+            }
+            statuses = next;
+            loading = null;
+            loaded = true;
+            log.info(DEVICE_STATUS_INDEX_LOADED, next.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    next.memoryBytes());
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void markStale(DeviceChangedEvent event) {
+        markStale(event.deviceId());
+        markStale(event.previousDeviceId());
+    }
+
+    /**
+     * Detaches the load in flight first, so that it cannot overwrite the mark with the status it read before.
+     */
+    private void markStale(Long deviceId) {
+        if (deviceId == null) {
+            return;
+        }
+        flights.forget(deviceId);
+        LongByteHashMap next = loading;
+        if (next != null) {
+            next.put(deviceId, STALE);
+        }
+        statuses.put(deviceId, STALE);
+    }
+
+    /**
+     * Reads on the primary, a replica may not have replayed the change that marked the status stale.
+     */
+    private byte load(Long deviceId) {
+        return flights.execute(deviceId,
+                () -> DataSourceRouting.onPrimary(() -> deviceJdbcRepository.findStatusByDeviceId(deviceId))
+                        .map(DeviceStatusIndex::encode)
+                        .orElse(NO_VALUE),
+                (key, status) -> {
+                    if (status == NO_VALUE) {
+                        statuses.remove(key);
+                    } else {
+                        statuses.put(key, status);
+                    }
+                });
+    }
+
+    private static DeviceStatusDto toDto(Long deviceId, byte status) {
+        if (status == NO_VALUE) {
+            throw new NotFoundException(String.format(DEVICE_WITH_DEVICE_ID_NOT_FOUND, deviceId));
+        }
+        return new DeviceStatusDto(deviceId, STATUSES[status - 1]);
+    }
+
+    private double memoryPerMillion() {
+        LongByteHashMap current = statuses;
+        int size = current.size();
+        return size == 0 ? 0 : current.memoryBytes() * 1_000_000.0 / size;
+    }
+
+    private static byte encode(Status status) {
+        return (byte) (status.ordinal() + 1);
+    }
+}
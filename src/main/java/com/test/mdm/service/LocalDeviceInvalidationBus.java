@@ -0,0 +1,46 @@
+package com.test.mdm.service;
+
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.event.DeviceInvalidationBus;
+import com.test.mdm.event.DeviceInvalidationListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Stand-in for a single instance and for tests, delivers changes to the listeners of this JVM once the transaction
+ * commits.
+ */
+@Component
+@ConditionalOnProperty(prefix = "mdm.devices.cache.invalidation", name = "type", havingValue = "local")
+public class LocalDeviceInvalidationBus implements DeviceInvalidationBus {
+
+    private final List<DeviceInvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(DeviceChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deliver(event);
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(DeviceInvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    private void deliver(DeviceChangedEvent event) {
+        listeners.forEach(listener -> listener.onRemoteChanges(List.of(event)));
+    }
+}
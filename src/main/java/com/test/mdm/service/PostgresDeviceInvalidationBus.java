@@ -0,0 +1,223 @@
+package com.test.mdm.service;
+
+import com.test.mdm.config.DeviceCacheProperties;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.event.DeviceInvalidationBus;
+import com.test.mdm.event.DeviceInvalidationListener;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Device changes sent with PostgreSQL NOTIFY. Notifications are sent in the transaction that made the changes, once
+ * per transaction, so the database delivers them on commit and drops them on rollback. Every instance listens on a
+ * connection of its own, outside the pool, and skips the notifications it sent.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "mdm.devices.cache.invalidation", name = "type", havingValue = "postgres",
+        matchIfMissing = true)
+public class PostgresDeviceInvalidationBus implements DeviceInvalidationBus, SmartLifecycle {
+
+    /**
+     * NOTIFY payloads must be shorter than 8000 bytes, larger transactions send several notifications.
+     */
+    static final int MAX_PAYLOAD_LENGTH = 7900;
+
+    private static final String NOTIFY = "SELECT pg_notify(?, payload) FROM unnest(?::text[]) AS payload";
+    private static final int RECEIVE_TIMEOUT_MILLIS = 500;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final List<DeviceInvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final DeviceCacheProperties.Invalidation properties;
+    private volatile boolean running;
+    private Thread receiver;
+
+    public PostgresDeviceInvalidationBus(JdbcTemplate jdbcTemplate, DataSourceProperties dataSourceProperties,
+                                         DeviceCacheProperties deviceCacheProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.properties = deviceCacheProperties.invalidation();
+    }
+
+    @Override
+    public void publish(DeviceChangedEvent event) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            send(List.of(event));
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(event);
+    }
+
+    @Override
+    public void subscribe(DeviceInvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        receiver = new Thread(this::receive, "device-invalidation");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            receiver.join(TimeUnit.SECONDS.toMillis(1) + RECEIVE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void send(List<DeviceChangedEvent> changes) {
+        String[] payloads = encode(instanceId, changes).toArray(String[]::new);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(NOTIFY);
+            statement.setString(1, properties.channel());
+            statement.setArray(2, connection.createArrayOf("text", payloads));
+            return statement;
+        }, resultSet -> {
+        });
+    }
+
+    private void receive() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN \"" + properties.channel() + "\"");
+                if (reconnecting) {
+                    log.info("Listening for device changes on {} again", properties.channel());
+                    listeners.forEach(DeviceInvalidationListener::onChangesLost);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(RECEIVE_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Listening for device changes on {} failed, retrying in {}", properties.channel(),
+                        properties.reconnectDelay(), e);
+                reconnecting = true;
+                try {
+                    Thread.sleep(properties.reconnectDelay().toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        List<DeviceChangedEvent> changes = decode(instanceId, payload);
+        if (!changes.isEmpty()) {
+            listeners.forEach(listener -> listener.onRemoteChanges(changes));
+        }
+    }
+
+    /**
+     * {@code <instance>|<type>,<id>,<deviceId>,<previousDeviceId>;...} split into payloads of at most
+     * {@link #MAX_PAYLOAD_LENGTH} characters.
+     */
+    static List<String> encode(String instanceId, List<DeviceChangedEvent> changes) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(instanceId);
+        for (DeviceChangedEvent change : changes) {
+            String entry = change.type().name() + ',' + format(change.id()) + ',' + format(change.deviceId()) + ','
+                    + format(change.previousDeviceId());
+            if (payload.length() > instanceId.length()
+                    && payload.length() + entry.length() + 1 > MAX_PAYLOAD_LENGTH) {
+                payloads.add(payload.toString());
+                payload.setLength(instanceId.length());
+            }
+            payload.append(payload.length() == instanceId.length() ? '|' : ';').append(entry);
+        }
+        if (payload.length() > instanceId.length()) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    /**
+     * @return changes of the payload, none when it was sent by {@code instanceId}
+     */
+    static List<DeviceChangedEvent> decode(String instanceId, String payload) {
+        int separator = payload.indexOf('|');
+        if (separator < 0 || payload.substring(0, separator).equals(instanceId)) {
+            return List.of();
+        }
+        List<DeviceChangedEvent> changes = new ArrayList<>();
+        for (String entry : payload.substring(separator + 1).split(";")) {
+            String[] fields = entry.split(",", -1);
+            changes.add(new DeviceChangedEvent(ChangeType.valueOf(fields[0]), parse(fields[1]), parse(fields[2]),
+                    parse(fields[3])));
+        }
+        return changes;
+    }
+
+    private static String format(Long value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private static Long parse(String value) {
+        return value.isEmpty() ? null : Long.valueOf(value);
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final List<DeviceChangedEvent> changes = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            send(changes);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PostgresDeviceInvalidationBus.this);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.test.mdm.service;
+
+import com.test.mdm.config.DeviceProperties;
+import com.test.mdm.dto.DeviceBatchDto;
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.DevicePageDto;
+import com.test.mdm.dto.DeviceStatusDto;
+import com.test.mdm.dto.request.DeviceBatchRequest;
+import com.test.mdm.dto.request.DeviceFilter;
+import com.test.mdm.dto.request.DeviceRequest;
+import com.test.mdm.dto.request.DeviceSortField;
+import com.test.mdm.dto.request.UpdateDeviceStatusRequest;
+import com.test.mdm.exception.NotFoundException;
+import com.test.mdm.repository.DeviceR2dbcRepository;
+import com.test.mdm.util.DeviceCursor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_DEVICE_ID;
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_ID;
+import static com.test.mdm.config.MetricsConfig.DEVICE_ROWS_METRIC;
+import static com.test.mdm.config.MetricsConfig.OPERATION_TAG;
+import static com.test.mdm.util.Constant.DEVICE_WITH_DEVICE_ID_NOT_FOUND;
+import static com.test.mdm.util.Constant.DEVICE_WITH_ID_NOT_FOUND;
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.REACTIVE;
+
+/**
+ * Device operations of the reactive stack. The polled reads, single devices, pages and the full list, run on R2DBC
+ * and share the device caches and their load coalescing with the servlet stack.
+ * <p>
+ * Everything else runs through {@link DeviceService} on the bounded elastic scheduler: writes stay in one JDBC
+ * transaction with their outbox row and invalidation, searches and batches keep their JDBC queries.
+ */
+@Service
+@ConditionalOnWebApplication(type = REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveDeviceService {
+
+    private final DeviceR2dbcRepository deviceR2dbcRepository;
+    private final DeviceService deviceService;
+    private final DeviceStatusCoalescer deviceStatusCoalescer;
+    private final DeviceReadCoalescer deviceReadCoalescer;
+    private final DeviceStatusIndex deviceStatusIndex;
+    private final DeviceProperties deviceProperties;
+    private final MeterRegistry meterRegistry;
+
+    public Flux<DeviceDto> streamDevices() {
+        return Flux.defer(() -> {
+            AtomicInteger rows = new AtomicInteger();
+            return deviceR2dbcRepository.streamAllDtos()
+                    .doOnNext(device -> rows.incrementAndGet())
+                    .doFinally(signal -> recordRows("getDevices", rows.get()));
+        });
+    }
+
+    public Mono<DevicePageDto> getDevicesPage(String cursor, Integer size) {
+        int pageSize = deviceProperties.page().resolve(size);
+        return Mono.fromCallable(() -> DeviceCursor.decode(cursor))
+                .flatMap(after -> deviceR2dbcRepository.findDtosByIdGreaterThan(after, pageSize + 1).collectList())
+                .map(devices -> {
+                    recordRows("getDevicesPage", Math.min(devices.size(), pageSize));
+                    if (devices.size() <= pageSize) {
+                        return new DevicePageDto(devices, null);
+                    }
+                    List<DeviceDto> page = devices.subList(0, pageSize);
+                    return new DevicePageDto(page, DeviceCursor.encode(page.get(pageSize - 1).getId()));
+                });
+    }
+
+    public Mono<DevicePageDto> searchDevices(DeviceFilter filter, DeviceSortField sortField, Sort.Direction direction,
+                                             String cursor, Integer size) {
+        return blocking(() -> deviceService.searchDevices(filter, sortField, direction, cursor, size));
+    }
+
+    public Mono<DeviceDto> getDeviceById(Long id) {
+        return Mono.fromFuture(() -> deviceReadCoalescer.findAsync(DEVICES_BY_ID, id,
+                        () -> deviceR2dbcRepository.findById(id).toFuture()))
+                .switchIfEmpty(Mono.error(() -> new NotFoundException(String.format(DEVICE_WITH_ID_NOT_FOUND, id))));
+    }
+
+    public Mono<DeviceDto> getDevicesByDeviceId(Long deviceId) {
+        return Mono.fromFuture(() -> deviceReadCoalescer.findAsync(DEVICES_BY_DEVICE_ID, deviceId,
+                        () -> deviceR2dbcRepository.findByDeviceId(deviceId).toFuture()))
+                .switchIfEmpty(Mono.error(() ->
+                        new NotFoundException(String.format(DEVICE_WITH_DEVICE_ID_NOT_FOUND, deviceId))));
+    }
+
+    /**
+     * Stale and not yet indexed statuses are read with JDBC, off the event loop. The event loop only asks the index
+     * for what it holds in memory, a status going stale in between is left to the JDBC read.
+     */
+    public Mono<DeviceStatusDto> getDeviceStatus(Long deviceId) {
+        return Mono.fromCallable(() -> deviceStatusIndex.getIndexedStatus(deviceId))
+                .switchIfEmpty(blocking(() -> deviceStatusIndex.getDeviceStatus(deviceId)));
+    }
+
+    public Mono<DeviceBatchDto> getDevicesBatch(DeviceBatchRequest request) {
+        return blocking(() -> deviceService.getDevicesBatch(request));
+    }
+
+    public Mono<DeviceDto> createDevice(DeviceRequest deviceRequest) {
+        return blocking(() -> deviceService.createDevice(deviceRequest));
+    }
+
+    public Mono<DeviceDto> updateDevice(Long id, DeviceRequest deviceRequest, Long expectedVersion) {
+        return blocking(() -> deviceService.updateDevice(id, deviceRequest, expectedVersion));
+    }
+
+    /**
+     * @return the updated device, empty when the status is only buffered, see {@link DeviceStatusCoalescer}
+     */
+    public Mono<DeviceDto> updateDeviceStatus(Long id, UpdateDeviceStatusRequest updateDeviceStatusRequest,
+                                              Long expectedVersion) {
+        if (expectedVersion == null && deviceStatusCoalescer.isEnabled()) {
+            return blocking(() -> deviceStatusCoalescer.updateDeviceStatus(id, updateDeviceStatusRequest));
+        }
+        return blocking(() -> deviceService.updateDeviceStatus(id, updateDeviceStatusRequest, expectedVersion));
+    }
+
+    public Mono<Void> deleteDevice(Long id, Long expectedVersion) {
+        return blocking(() -> {
+            deviceService.deleteDevice(id, expectedVersion);
+            return null;
+        });
+    }
+
+    /**
+     * Runs a JDBC operation off the event loop, its result is empty when the operation returns null.
+     */
+    private static <T> Mono<T> blocking(Callable<T> operation) {
+        return Mono.fromCallable(operation).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private void recordRows(String operation, int rows) {
+        DistributionSummary.builder(DEVICE_ROWS_METRIC)
+                .description("Devices returned by a list operation")
+                .baseUnit("rows")
+                .tag(OPERATION_TAG, operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(rows);
+    }
+}
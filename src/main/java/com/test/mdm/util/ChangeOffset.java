@@ -0,0 +1,40 @@
+package com.test.mdm.util;
+
+import com.test.mdm.exception.InvalidCursorException;
+
+import static com.test.mdm.util.Constant.INVALID_CURSOR;
+
+/**
+ * Position in the change feed: the id of the writing transaction, then the change id. Change ids are taken before
+ * commit and so can become visible out of order, transaction ids below the oldest running transaction cannot.
+ */
+public record ChangeOffset(long txId, long id) implements Comparable<ChangeOffset> {
+
+    public static final ChangeOffset START = new ChangeOffset(0, 0);
+
+    public static ChangeOffset parse(String offset) {
+        if (offset == null || offset.isBlank()) {
+            return START;
+        }
+        String[] parts = offset.split("-", 2);
+        try {
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(offset);
+            }
+            return new ChangeOffset(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(String.format(INVALID_CURSOR, offset));
+        }
+    }
+
+    @Override
+    public int compareTo(ChangeOffset other) {
+        int byTx = Long.compare(txId, other.txId);
+        return byTx != 0 ? byTx : Long.compare(id, other.id);
+    }
+
+    @Override
+    public String toString() {
+        return txId + "-" + id;
+    }
+}
@@ -9,4 +9,34 @@ public class Constant {
     public static final String DEVICE_SUCCESSFULLY_UPDATED = "Device with id {} successfully updated: {}";
     public static final String DEVICE_STATUS_SUCCESSFULLY_UPDATED = "Device with id {} successfully updated status to {}";
     public static final String DEVICE_DELETED = "Device with id {} successfully deleted";
+    public static final String DEVICE_PRECONDITION_FAILED = "Device with id %s does not match %s";
+    public static final String DEVICE_CONCURRENTLY_MODIFIED = "Device was modified concurrently, retry with its current version";
+    public static final String INVALID_CURSOR = "Invalid cursor %s";
+    public static final String UNKNOWN_STATUS = "Unknown status %s";
+    public static final String DUPLICATE_DEVICE_ID_IN_REQUEST = "Duplicate deviceId in request";
+    public static final String DEVICE_ID_ALREADY_EXISTS = "Device with deviceId already exists";
+    public static final String BULK_STATUS_JOB_NOT_FOUND = "Bulk status job %s not found";
+    public static final String BULK_STATUS_JOB_FINISHED = "Bulk status job {} {}: {} devices updated to {} in {} chunks";
+    public static final String BULK_STATUS_JOB_ABANDONED = "Abandoned, no progress for %s";
+    public static final String BULK_STATUS_JOBS_ABANDONED = "Failed {} bulk status jobs without progress for {}";
+    public static final String DEVICE_ARCHIVED = "Device with id {} successfully archived";
+    public static final String DEVICE_ARCHIVE_PARTITIONS_CREATED = "Created {} device archive partitions";
+    public static final String DEVICE_ARCHIVE_PARTITIONS_DROPPED = "Dropped {} device archive partitions before {}";
+    public static final String DEVICE_CHANGES_PURGED = "Purged {} device changes before {}";
+    public static final String DEVICE_CHANGES_NOT_READ = "Reading device changes after {} failed, retried on the next poll";
+    public static final String DEVICE_STATUSES_WRITTEN = "Wrote {} buffered device statuses, {} devices not found";
+    public static final String DEVICE_STATUSES_NOT_WRITTEN = "Writing {} buffered device statuses failed";
+    public static final String DEVICE_STATUSES_LOST = "Stopped with {} buffered device statuses not written";
+    public static final String DEVICE_STATUSES_DROPPED = "Dropped {} buffered device statuses after {} failed writes";
+    public static final String DEVICE_STATUS_SUPERSEDED = "Buffered status of device {} not written again, a later status was written directly";
+    public static final String TOO_MANY_REQUESTS = "Too many %s requests, retry after %s seconds";
+    public static final String SERVICE_OVERLOADED = "Service is overloaded, retry after %s seconds";
+    public static final String CONNECTION_POOL_SIZED = "Connection pool sized to {} connections";
+    public static final String REPLICA_UP = "Replica {} serves reads, lag {} ms";
+    public static final String REPLICA_DOWN = "Replica {} is down, its reads go to the other replicas or the primary: {}";
+    public static final String REPLICA_LAGGING = "Replica {} lags {} ms behind the primary, more than {} ms, its reads go to the other replicas or the primary";
+    public static final String DATABASE_MIGRATED = "Database migrated by {} with contexts {}";
+    public static final String DEVICE_STATUS_INDEX_LOADED = "Loaded status index of {} devices in {} ms, {} bytes";
+    public static final String DEVICE_STATUS_INDEX_NOT_LOADED = "Loading the device status index failed, statuses are read from the database until it is loaded";
+    public static final String BULK_DEVICES_PROCESSED = "Bulk {} processed {} devices: {} created, {} updated, {} failed, {} rows/s";
 }
@@ -0,0 +1,74 @@
+package com.test.mdm.util;
+
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.request.DeviceSortField;
+import com.test.mdm.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import static com.test.mdm.util.Constant.INVALID_CURSOR;
+
+public class DeviceCursor {
+
+    private DeviceCursor() {}
+
+    public static String encode(Long lastId) {
+        return encode(String.valueOf(lastId));
+    }
+
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(decodeToString(cursor));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(String.format(INVALID_CURSOR, cursor));
+        }
+    }
+
+    /**
+     * Encodes the sort key of the last device of a page, the sort field is kept to reject cursors of another sort.
+     */
+    public static String encode(DeviceSortField sortField, DeviceDto last) {
+        Object value = sortField.getValue(last);
+        return encode(sortField.name() + ":" + last.getId() + ":" + (value == null ? "" : value));
+    }
+
+    /**
+     * @return position after which the next page starts, {@code null} for the first page
+     */
+    public static Position decode(String cursor, DeviceSortField sortField) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = decodeToString(cursor).split(":", 3);
+            if (parts.length != 3 || !parts[0].equals(sortField.name())) {
+                throw new InvalidCursorException(String.format(INVALID_CURSOR, cursor));
+            }
+            Object value = switch (sortField) {
+                case ID -> null;
+                case DEVICE_NAME -> parts[2];
+                case CREATED_AT -> LocalDateTime.parse(parts[2]);
+            };
+            return new Position(Long.parseLong(parts[1]), value);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException(String.format(INVALID_CURSOR, cursor));
+        }
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeToString(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    public record Position(long id, Object value) {
+    }
+}
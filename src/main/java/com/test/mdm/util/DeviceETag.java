@@ -0,0 +1,41 @@
+package com.test.mdm.util;
+
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.exception.PreconditionFailedException;
+
+import static com.test.mdm.util.Constant.DEVICE_PRECONDITION_FAILED;
+
+/**
+ * Strong entity tags of devices, {@code "<id>.<version>"}. The id keeps a device re-created under the same deviceId
+ * from matching the tag of the deleted one.
+ */
+public class DeviceETag {
+
+    private static final String ANY = "*";
+
+    private DeviceETag() {}
+
+    public static String of(DeviceDto device) {
+        return "\"" + device.getId() + "." + device.getVersion() + "\"";
+    }
+
+    /**
+     * @return version the device must have to satisfy the {@code If-Match} header, {@code null} for no condition
+     * @throws PreconditionFailedException when the header is not a strong entity tag of device {@code id}
+     */
+    public static Long expectedVersion(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        String prefix = "\"" + id + ".";
+        if (!tag.startsWith(prefix) || !tag.endsWith("\"") || tag.length() <= prefix.length() + 1) {
+            throw new PreconditionFailedException(String.format(DEVICE_PRECONDITION_FAILED, id, ifMatch));
+        }
+        try {
+            return Long.parseLong(tag.substring(prefix.length(), tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException(String.format(DEVICE_PRECONDITION_FAILED, id, ifMatch));
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.test.mdm.util;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Map of primitive {@code long} keys to non-zero {@code byte} values, without boxing: one open-addressing table of
+ * keys and one of values, probed linearly. An entry costs 9 bytes per slot and the table is kept at most three
+ * quarters full.
+ * <p>
+ * Reads take no lock, they are validated against concurrent writes and retried under a read lock only when one
+ * interfered. Writes are serialized.
+ */
+public final class LongByteHashMap {
+
+    /**
+     * Value of absent keys, cannot be stored.
+     */
+    public static final byte NO_VALUE = 0;
+
+    private static final int MIN_CAPACITY = 16;
+    private static final long ARRAY_HEADER_BYTES = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table;
+    private int size;
+
+    public LongByteHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize entries the map holds without growing
+     */
+    public LongByteHashMap(int expectedSize) {
+        this.table = new Table(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return value of the key, {@link #NO_VALUE} when it is absent
+     */
+    public byte get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        byte value = table.get(key);
+        if (lock.validate(stamp)) {
+            return value;
+        }
+        stamp = lock.readLock();
+        try {
+            return table.get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void put(long key, byte value) {
+        put(key, value, false);
+    }
+
+    /**
+     * @return the present value, {@link #NO_VALUE} when the key was absent and {@code value} was stored
+     */
+    public byte putIfAbsent(long key, byte value) {
+        return put(key, value, true);
+    }
+
+    /**
+     * @return the removed value, {@link #NO_VALUE} when the key was absent
+     */
+    public byte remove(long key) {
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int slot = current.slotOf(key);
+            if (slot < 0) {
+                return NO_VALUE;
+            }
+            byte previous = current.values[slot];
+            current.delete(slot);
+            size--;
+            return previous;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return bytes held by the key and value tables
+     */
+    public long memoryBytes() {
+        Table current = table;
+        return 2 * ARRAY_HEADER_BYTES + (long) current.keys.length * Long.BYTES + current.values.length;
+    }
+
+    private byte put(long key, byte value, boolean onlyIfAbsent) {
+        if (value == NO_VALUE) {
+            throw new IllegalArgumentException("Value " + NO_VALUE + " cannot be stored");
+        }
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int slot = current.slotOf(key);
+            if (slot >= 0) {
+                byte previous = current.values[slot];
+                if (!onlyIfAbsent) {
+                    current.values[slot] = value;
+                }
+                return previous;
+            }
+            if (size + 1 > current.threshold()) {
+                current = current.grow();
+                table = current;
+            }
+            current.insert(key, value);
+            size++;
+            return NO_VALUE;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long minimum = Math.max(MIN_CAPACITY, (long) Math.ceil(expectedSize / 0.75));
+        if (minimum > 1 << 30) {
+            throw new IllegalArgumentException("Expected size " + expectedSize + " is too large");
+        }
+        return Integer.highestOneBit((int) minimum - 1) << 1;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32);
+    }
+
+    /**
+     * A slot is free when its value is {@link #NO_VALUE}. Lookups stop at the first free slot, so a deletion shifts
+     * the entries that follow back into the freed slot instead of leaving a marker.
+     */
+    private static final class Table {
+
+        private final long[] keys;
+        private final byte[] values;
+        private final int mask;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new byte[capacity];
+            this.mask = capacity - 1;
+        }
+
+        private int threshold() {
+            return keys.length - (keys.length >>> 2);
+        }
+
+        /**
+         * Probes at most the whole table, a read racing a write may not find a free slot to stop at.
+         */
+        private byte get(long key) {
+            int slot = hash(key) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                byte value = values[slot];
+                if (value == NO_VALUE) {
+                    return NO_VALUE;
+                }
+                if (keys[slot] == key) {
+                    return value;
+                }
+                slot = slot + 1 & mask;
+            }
+            return NO_VALUE;
+        }
+
+        private int slotOf(long key) {
+            int slot = hash(key) & mask;
+            while (values[slot] != NO_VALUE) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = slot + 1 & mask;
+            }
+            return -1;
+        }
+
+        private void insert(long key, byte value) {
+            int slot = hash(key) & mask;
+            while (values[slot] != NO_VALUE) {
+                slot = slot + 1 & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private void delete(int slot) {
+            int free = slot;
+            int next = free;
+            while (true) {
+                next = next + 1 & mask;
+                if (values[next] == NO_VALUE) {
+                    break;
+                }
+                int home = hash(keys[next]) & mask;
+                // the entry may move back unless its home slot lies cyclically in (free, next]
+                if ((next - home & mask) >= (next - free & mask)) {
+                    keys[free] = keys[next];
+                    values[free] = values[next];
+                    free = next;
+                }
+            }
+            keys[free] = 0;
+            values[free] = NO_VALUE;
+        }
+
+        private Table grow() {
+            Table grown = new Table(keys.length << 1);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (values[slot] != NO_VALUE) {
+                    grown.insert(keys[slot], values[slot]);
+                }
+            }
+            return grown;
+        }
+    }
+}
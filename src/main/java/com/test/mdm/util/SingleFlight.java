@@ -0,0 +1,186 @@
+package com.test.mdm.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one call per key at a time: a caller of a key already in flight waits for that call instead of
+ * making its own. Callers of many keys make one call for the keys nobody else is loading and wait for the rest.
+ * <p>
+ * {@link #forget} detaches the call in flight from its key, so callers arriving after a change never get a result
+ * loaded before it. The completion callback of a call runs only while it is still attached, atomically with
+ * {@code forget}, so a detached call cannot publish its result.
+ * <p>
+ * A caller joins only after completing its own call, so callers cannot wait on each other.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param call      loads the value, null when there is none
+     * @param completed receives the loaded value while the call is still attached to its key
+     * @return loaded value, null when there is none
+     */
+    public V execute(K key, Supplier<V> call, BiConsumer<K, V> completed) {
+        return executeAll(List.of(key), keys -> {
+            Map<K, V> values = new HashMap<>();
+            values.put(key, call.get());
+            return values;
+        }, completed).get(key);
+    }
+
+    /**
+     * @param call      loads the values of the given keys, keys without a value are left out
+     * @param completed receives every loaded value while its call is still attached to the key
+     * @return values of the keys that have one
+     */
+    public Map<K, V> executeAll(Collection<K> keys, Function<Collection<K>, Map<K, V>> call,
+                                BiConsumer<K, V> completed) {
+        Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> joined = new LinkedHashMap<>();
+        for (K key : keys) {
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> current = flights.putIfAbsent(key, flight);
+            if (current == null) {
+                owned.put(key, flight);
+            } else {
+                joined.put(key, current);
+            }
+        }
+        Map<K, V> values = new HashMap<>();
+        if (!owned.isEmpty()) {
+            calls.increment();
+            Map<K, V> loaded;
+            try {
+                loaded = call.apply(new ArrayList<>(owned.keySet()));
+            } catch (RuntimeException | Error e) {
+                owned.forEach((key, flight) -> {
+                    flights.remove(key, flight);
+                    flight.completeExceptionally(e);
+                });
+                throw e;
+            }
+            owned.forEach((key, flight) -> {
+                V value = loaded.get(key);
+                land(key, flight, value, completed);
+                flight.complete(value);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            });
+        }
+        coalesced.add(joined.size());
+        joined.forEach((key, flight) -> {
+            V value = join(flight);
+            if (value != null) {
+                values.put(key, value);
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Non-blocking {@link #execute}: a caller of a key already in flight gets the pending result of that call.
+     *
+     * @param call      starts loading the value, completes with null when there is none
+     * @param completed receives the loaded value while the call is still attached to its key
+     * @return pending value, null when there is none
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call, BiConsumer<K, V> completed) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> current = flights.putIfAbsent(key, flight);
+        if (current != null) {
+            coalesced.increment();
+            return current.copy();
+        }
+        calls.increment();
+        CompletableFuture<V> loading;
+        try {
+            loading = call.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        loading.whenComplete((value, e) -> {
+            if (e != null) {
+                flights.remove(key, flight);
+                flight.completeExceptionally(e);
+                return;
+            }
+            land(key, flight, value, completed);
+            flight.complete(value);
+        });
+        // callers get copies, one cancelling its copy does not cancel the others
+        return flight.copy();
+    }
+
+    /**
+     * Detaches the call in flight for the key, if any. Callers already waiting for it still get its result.
+     */
+    public void forget(K key) {
+        flights.remove(key);
+    }
+
+    public void forgetAll() {
+        flights.clear();
+    }
+
+    /**
+     * @return calls made so far
+     */
+    public long calls() {
+        return calls.sum();
+    }
+
+    /**
+     * @return keys served so far by the call of another caller
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Removes the finished call from its key and hands over the value, unless the call was detached meanwhile.
+     */
+    private void land(K key, CompletableFuture<V> flight, V value, BiConsumer<K, V> completed) {
+        flights.computeIfPresent(key, (k, current) -> {
+            if (current != flight) {
+                return current;
+            }
+            if (value != null) {
+                completed.accept(k, value);
+            }
+            return null;
+        });
+    }
+
+    private static <V> V join(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
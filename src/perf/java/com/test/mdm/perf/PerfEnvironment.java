@@ -0,0 +1,70 @@
+package com.test.mdm.perf;
+
+import com.test.mdm.MdmApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The application started against a throwaway embedded PostgreSQL, migrated and seeded by Liquibase with
+ * {@code devices} generated devices (deviceId 1000001 and up).
+ */
+public final class PerfEnvironment implements AutoCloseable {
+
+    public static final long FIRST_SEEDED_DEVICE_ID = 1_000_001L;
+
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private PerfEnvironment(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    public static PerfEnvironment start(int devices, WebApplicationType webApplicationType, Map<String, Object> properties)
+            throws IOException {
+        // devtools only honours the system property, and a restart would re-run the benchmark's main method
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        String url = postgres.getJdbcUrl("postgres", "postgres");
+        Map<String, Object> overrides = new LinkedHashMap<>();
+        overrides.put("spring.datasource.url", url);
+        overrides.put("spring.liquibase.url", url);
+        overrides.put("spring.liquibase.change-log", "classpath:db/db.perf-changelog.xml");
+        overrides.put("spring.liquibase.parameters.perf.devices", devices);
+        overrides.put("logging.level.root", "WARN");
+        overrides.putAll(properties);
+        // passed as command line arguments so they take precedence over application.yaml
+        String[] args = overrides.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        try {
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(MdmApplication.class)
+                    .web(webApplicationType)
+                    .run(args);
+            return new PerfEnvironment(postgres, context);
+        } catch (RuntimeException e) {
+            postgres.close();
+            throw e;
+        }
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public ConfigurableApplicationContext getContext() {
+        return context;
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
@@ -0,0 +1,38 @@
+package com.test.mdm.perf.benchmark;
+
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.request.DeviceRequest;
+import com.test.mdm.entity.DeviceEntity;
+import com.test.mdm.entity.Status;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceMappingBenchmark {
+
+    private DeviceEntity entity;
+    private DeviceRequest request;
+
+    @Setup
+    public void setUp() {
+        entity = new DeviceEntity(1L, 101L, "Device", Status.ACTIVE, LocalDateTime.now(), 0L);
+        request = new DeviceRequest(101L, "Device", "BLOCKED");
+    }
+
+    @Benchmark
+    public DeviceDto entityToDto() {
+        return entity.toDto();
+    }
+
+    @Benchmark
+    public DeviceEntity requestToEntity() {
+        return request.toDeviceEntity(new DeviceEntity());
+    }
+}
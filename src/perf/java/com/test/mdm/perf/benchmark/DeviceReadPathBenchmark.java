@@ -0,0 +1,104 @@
+package com.test.mdm.perf.benchmark;
+
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.entity.DeviceEntity;
+import com.test.mdm.perf.PerfEnvironment;
+import com.test.mdm.repository.DeviceRepository;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.test.mdm.perf.PerfEnvironment.FIRST_SEEDED_DEVICE_ID;
+
+/**
+ * Read paths of {@link DeviceRepository}: managed {@link DeviceEntity} instances copied by {@code toDto()} against
+ * the {@link DeviceDto} projections, both in a read-only transaction as in {@code DeviceService}. Entities by id
+ * are served by the second-level cache unless {@code secondLevelCache=false}. Run with {@code -prof gc} for the
+ * allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class DeviceReadPathBenchmark {
+
+    @Param({"100000"})
+    private int devices;
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    @Param({"true", "false"})
+    private boolean secondLevelCache;
+
+    private PerfEnvironment environment;
+    private DeviceRepository deviceRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnlyTransaction;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        environment = PerfEnvironment.start(devices, WebApplicationType.NONE, Map.of("spring.cache.type", "none",
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache", secondLevelCache));
+        deviceRepository = environment.getBean(DeviceRepository.class);
+        entityManager = environment.getBean(EntityManager.class);
+        readOnlyTransaction = new TransactionTemplate(environment.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+        firstId = deviceRepository.findByDeviceId(FIRST_SEEDED_DEVICE_ID).orElseThrow().getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public List<DeviceDto> pageOfEntities() {
+        long after = randomAfter();
+        return readOnlyTransaction.execute(status -> entityManager
+                .createQuery("select d from DeviceEntity d where d.id > :id order by d.id", DeviceEntity.class)
+                .setParameter("id", after)
+                .setMaxResults(pageSize)
+                .getResultStream()
+                .map(DeviceEntity::toDto)
+                .toList());
+    }
+
+    @Benchmark
+    public List<DeviceDto> pageOfProjections() {
+        long after = randomAfter();
+        return readOnlyTransaction.execute(status -> deviceRepository.findDtosByIdGreaterThan(after, Limit.of(pageSize)));
+    }
+
+    @Benchmark
+    public DeviceDto entityById() {
+        long id = randomAfter() + 1;
+        return readOnlyTransaction.execute(status -> deviceRepository.findById(id).orElseThrow().toDto());
+    }
+
+    @Benchmark
+    public DeviceDto projectionById() {
+        long id = randomAfter() + 1;
+        return readOnlyTransaction.execute(status -> entityManager
+                .createQuery(DeviceRepository.SELECT_DEVICE_DTO + "where d.id = :id", DeviceDto.class)
+                .setParameter("id", id)
+                .getSingleResult());
+    }
+
+    private long randomAfter() {
+        return firstId - 1 + ThreadLocalRandom.current().nextLong(devices - pageSize);
+    }
+}
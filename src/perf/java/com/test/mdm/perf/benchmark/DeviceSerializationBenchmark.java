@@ -0,0 +1,62 @@
+package com.test.mdm.perf.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.entity.Status;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Jackson serialization of device lists configured like the application mapper, written to a discarding stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DeviceSerializationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<DeviceDto> devices;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 14, 12, 0);
+        devices = LongStream.rangeClosed(1, size)
+                .mapToObj(i -> new DeviceDto(i, 1000 + i, "Device " + i, i % 10 == 0 ? Status.BLOCKED : Status.ACTIVE,
+                        createdAt.plusSeconds(i), 0L))
+                .toList();
+    }
+
+    @Benchmark
+    public void writeList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), devices);
+    }
+
+    @Benchmark
+    public void writeStreamed() throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(OutputStream.nullOutputStream())) {
+            generator.writeStartArray();
+            for (DeviceDto device : devices) {
+                generator.writeObject(device);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
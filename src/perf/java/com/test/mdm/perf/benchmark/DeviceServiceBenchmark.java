@@ -0,0 +1,88 @@
+package com.test.mdm.perf.benchmark;
+
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.request.DeviceRequest;
+import com.test.mdm.dto.request.UpdateDeviceStatusRequest;
+import com.test.mdm.perf.PerfEnvironment;
+import com.test.mdm.service.DeviceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.test.mdm.perf.PerfEnvironment.FIRST_SEEDED_DEVICE_ID;
+
+/**
+ * {@link DeviceService} through its Spring proxies against an embedded PostgreSQL seeded with {@code devices} rows.
+ * {@code cache=none} turns off the second-level cache as well, so that it measures the database path of the lookups.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class DeviceServiceBenchmark {
+
+    @Param({"100000"})
+    private int devices;
+
+    @Param({"caffeine", "none"})
+    private String cache;
+
+    private final AtomicLong nextDeviceId = new AtomicLong(10_000_000L);
+
+    private PerfEnvironment environment;
+    private DeviceService deviceService;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        environment = PerfEnvironment.start(devices, WebApplicationType.NONE, Map.of("spring.cache.type", cache,
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache", !"none".equals(cache)));
+        deviceService = environment.getBean(DeviceService.class);
+        firstId = deviceService.getDevicesByDeviceId(FIRST_SEEDED_DEVICE_ID).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public DeviceDto getDeviceById() {
+        return deviceService.getDeviceById(firstId + randomOffset());
+    }
+
+    @Benchmark
+    public DeviceDto getDevicesByDeviceId() {
+        return deviceService.getDevicesByDeviceId(FIRST_SEEDED_DEVICE_ID + randomOffset());
+    }
+
+    @Benchmark
+    public DeviceDto createDevice() {
+        return deviceService.createDevice(new DeviceRequest(nextDeviceId.incrementAndGet(), "Benchmark", "ACTIVE"));
+    }
+
+    @Benchmark
+    public DeviceDto updateDevice() {
+        long offset = randomOffset();
+        return deviceService.updateDevice(firstId + offset,
+                new DeviceRequest(FIRST_SEEDED_DEVICE_ID + offset, "Device " + offset, "ACTIVE"), null);
+    }
+
+    @Benchmark
+    public DeviceDto updateDeviceStatus() {
+        String status = ThreadLocalRandom.current().nextBoolean() ? "ACTIVE" : "BLOCKED";
+        return deviceService.updateDeviceStatus(firstId + randomOffset(), new UpdateDeviceStatusRequest(status), null);
+    }
+
+    private long randomOffset() {
+        return ThreadLocalRandom.current().nextLong(devices);
+    }
+}
@@ -0,0 +1,82 @@
+package com.test.mdm.perf.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.entity.Status;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding and decoding of a device list in the negotiated response formats, optionally gzip compressed as by the
+ * server above its minimum response size. The bytes on the wire of every combination are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeviceWireFormatBenchmark {
+
+    @Param({"1000"})
+    private int size;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ObjectMapper objectMapper;
+    private List<DeviceDto> devices;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper = switch (format) {
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            default -> builder.build();
+        };
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 14, 12, 0);
+        devices = LongStream.rangeClosed(1, size)
+                .mapToObj(i -> new DeviceDto(i, 1000 + i, "Device " + i, i % 10 == 0 ? Status.BLOCKED : Status.ACTIVE,
+                        createdAt.plusSeconds(i), 0L))
+                .toList();
+        encoded = write();
+        System.out.printf("%n%s%s: %d bytes for %d devices%n", format, gzip ? "+gzip" : "", encoded.length, size);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : bytes) {
+            objectMapper.writeValue(out, devices);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public DeviceDto[] read() throws IOException {
+        try (InputStream in = gzip ? new GZIPInputStream(new ByteArrayInputStream(encoded)) : new ByteArrayInputStream(encoded)) {
+            return objectMapper.readValue(in, DeviceDto[].class);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.test.mdm.perf.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.test.mdm.perf.PerfEnvironment;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.test.mdm.perf.PerfEnvironment.FIRST_SEEDED_DEVICE_ID;
+
+/**
+ * Drives a weighted mix of requests against the REST API of the application started on an embedded PostgreSQL and
+ * reports throughput and p50/p99/p99.9 latency per endpoint, on stdout and as JSON.
+ * <p>
+ * Arguments are {@code key=value} pairs:
+ * <ul>
+ *     <li>{@code devices} - number of seeded devices, 100000 by default</li>
+ *     <li>{@code threads} - concurrent clients, 16 by default</li>
+ *     <li>{@code warmup}, {@code duration} - seconds of the unrecorded and of the recorded phase, 10 and 60 by default</li>
+ *     <li>{@code rate} - total requests per second, 0 (default) runs the clients back to back. With a fixed rate
+ *     latency is measured from the scheduled start of a request, so a stalled server is not hidden by clients
+ *     waiting on it</li>
+ *     <li>{@code mix} - weights overriding the defaults, e.g. {@code GET_BY_ID:80,UPDATE_STATUS:20}</li>
+ *     <li>{@code stack} - {@code servlet} (default) or {@code reactive}, the web stack serving the API. A comma
+ *     separated list, e.g. {@code servlet,reactive}, runs the same load against each in turn and compares them. The
+ *     reactive stack is built by the reactive Maven profile only, {@code mvn -Ploadtest,reactive ...}</li>
+ *     <li>{@code out} - JSON result file, target/loadtest-result.json by default</li>
+ *     <li>{@code maxP99Ms}, {@code maxErrorRate} - gates, the run exits with 1 when an endpoint exceeds them</li>
+ * </ul>
+ */
+public final class LoadTest {
+
+    private static final String SERVLET_STACK = "servlet";
+    private static final String REACTIVE_STACK = "reactive";
+
+    private final Options options;
+    private final Operation.Target target;
+    private final HttpClient httpClient;
+    private final Map<Operation, Recorder> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Operation[] schedule;
+    private volatile boolean recording;
+    private volatile boolean running = true;
+
+    private LoadTest(Options options, HttpClient httpClient, Operation.Target target) {
+        this.options = options;
+        this.httpClient = httpClient;
+        this.target = target;
+        List<Operation> weighted = new ArrayList<>();
+        options.mix().forEach((operation, weight) -> {
+            latencies.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+        });
+        this.schedule = weighted.toArray(Operation[]::new);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+        for (String stack : options.stacks()) {
+            results.put(stack, run(options, stack));
+        }
+        boolean passed = results.values().stream().allMatch(result -> Boolean.TRUE.equals(result.get("passed")));
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        if (results.size() == 1) {
+            objectMapper.writeValue(options.out(), results.values().iterator().next());
+        } else {
+            compare(results);
+            objectMapper.writeValue(options.out(), Map.of("stacks", results, "passed", passed));
+        }
+        System.out.printf("%nResults written to %s, %s%n", options.out(), passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static Map<String, Object> run(Options options, String stack) throws Exception {
+        // the load generator is a single client far above any client budget
+        Map<String, Object> properties = new HashMap<>(Map.of("server.port", 0, "mdm.requests.rate-limit.enabled", false));
+        WebApplicationType webApplicationType = WebApplicationType.SERVLET;
+        if (REACTIVE_STACK.equals(stack)) {
+            properties.put("spring.profiles.active", REACTIVE_STACK);
+            webApplicationType = WebApplicationType.REACTIVE;
+        } else if (!SERVLET_STACK.equals(stack)) {
+            throw new IllegalArgumentException("Unknown stack " + stack);
+        }
+        try (PerfEnvironment environment = PerfEnvironment.start(options.devices(), webApplicationType, properties)) {
+            int port = ((WebServerApplicationContext) environment.getContext()).getWebServer().getPort();
+            URI baseUri = URI.create("http://localhost:" + port);
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            LoadTest loadTest = new LoadTest(options, httpClient,
+                    new Operation.Target(baseUri, resolveFirstId(httpClient, baseUri), options.devices()));
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("stack", stack);
+            result.putAll(loadTest.run(stack));
+            return result;
+        }
+    }
+
+    /**
+     * Throughput, p99 and errors of every endpoint side by side, throughput and p99 relative to the first stack.
+     */
+    @SuppressWarnings("unchecked")
+    private static void compare(Map<String, Map<String, Object>> results) {
+        List<String> stacks = new ArrayList<>(results.keySet());
+        Map<String, Object> first = results.get(stacks.get(0));
+        List<String> endpoints = new ArrayList<>(((Map<String, Object>) first.get("endpoints")).keySet());
+        endpoints.add("TOTAL");
+        System.out.printf("%n%-17s", "Endpoint");
+        for (String stack : stacks) {
+            System.out.printf(" %18s %18s %8s", stack + " req/s", stack + " p99 ms", "errors");
+        }
+        System.out.println();
+        for (String endpoint : endpoints) {
+            System.out.printf("%-17s", endpoint);
+            Map<String, Object> baseline = endpointResult(first, endpoint);
+            for (String stack : stacks) {
+                Map<String, Object> result = endpointResult(results.get(stack), endpoint);
+                System.out.printf(" %18s %18s %8s",
+                        relative(result, baseline, "requestsPerSecond", "%.1f"),
+                        relative(result, baseline, "p99Ms", "%.2f"),
+                        result.get("errors"));
+            }
+            System.out.println();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> endpointResult(Map<String, Object> result, String endpoint) {
+        return "TOTAL".equals(endpoint)
+                ? (Map<String, Object>) result.get("total")
+                : ((Map<String, Map<String, Object>>) result.get("endpoints")).get(endpoint);
+    }
+
+    private static String relative(Map<String, Object> result, Map<String, Object> baseline, String key, String format) {
+        double value = ((Number) result.get(key)).doubleValue();
+        if (result == baseline) {
+            return String.format(format, value);
+        }
+        double base = ((Number) baseline.get(key)).doubleValue();
+        return String.format(format + " %+.0f%%", value, base == 0 ? 0 : (value - base) / base * 100);
+    }
+
+    private static long resolveFirstId(HttpClient httpClient, URI baseUri) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(
+                HttpRequest.newBuilder(baseUri.resolve("/devices/deviceId/" + FIRST_SEEDED_DEVICE_ID)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        return new ObjectMapper().readTree(response.body()).get("id").asLong();
+    }
+
+    private Map<String, Object> run(String stack) throws InterruptedException {
+        System.out.printf("Load test of the %s stack: %d devices, %d threads, %s, mix %s%n", stack, options.devices(),
+                options.threads(), options.rate() > 0 ? options.rate() + " req/s" : "closed loop", options.mix());
+        List<Thread> clients = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < options.threads(); i++) {
+            Thread client = new Thread(() -> runClient(start), "load-client-" + i);
+            client.start();
+            clients.add(client);
+        }
+        TimeUnit.SECONDS.sleep(options.warmup());
+        latencies.values().forEach(Recorder::reset);
+        errors.values().forEach(LongAdder::reset);
+        recording = true;
+        long recordingStart = System.nanoTime();
+        TimeUnit.SECONDS.sleep(options.duration());
+        recording = false;
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        latencies.forEach((operation, recorder) -> histograms.put(operation, recorder.getIntervalHistogram()));
+        double seconds = (System.nanoTime() - recordingStart) / 1e9;
+        running = false;
+        for (Thread client : clients) {
+            client.join();
+        }
+        return report(histograms, seconds);
+    }
+
+    private void runClient(long start) {
+        long interval = options.rate() > 0 ? TimeUnit.SECONDS.toNanos(options.threads()) / options.rate() : 0;
+        // spread the clients over one interval so that a fixed rate does not arrive in bursts
+        long intended = start + ThreadLocalRandom.current().nextLong(Math.max(interval, 1));
+        while (running) {
+            if (interval > 0) {
+                long delay = intended - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+            }
+            Operation operation = schedule[ThreadLocalRandom.current().nextInt(schedule.length)];
+            long requestStart = interval > 0 ? intended : System.nanoTime();
+            boolean failed;
+            try {
+                HttpResponse<Void> response = httpClient.send(operation.request(target),
+                        HttpResponse.BodyHandlers.discarding());
+                failed = response.statusCode() >= 400;
+            } catch (IOException e) {
+                failed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (recording) {
+                latencies.get(operation).recordValue(System.nanoTime() - requestStart);
+                if (failed) {
+                    errors.get(operation).increment();
+                }
+            }
+            intended += interval;
+        }
+    }
+
+    private Map<String, Object> report(Map<Operation, Histogram> histograms, double seconds) {
+        Histogram total = new Histogram(3);
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        long totalErrors = 0;
+        boolean passed = true;
+        System.out.printf("%n%-17s %10s %8s %10s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            long failed = errors.get(entry.getKey()).sum();
+            total.add(histogram);
+            totalErrors += failed;
+            Map<String, Object> result = print(entry.getKey().name(), histogram, failed, seconds);
+            endpoints.put(entry.getKey().name(), result);
+            passed &= withinGates(entry.getKey().name(), histogram, failed);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("devices", options.devices());
+        result.put("threads", options.threads());
+        result.put("rate", options.rate());
+        result.put("durationSeconds", seconds);
+        result.put("total", print("TOTAL", total, totalErrors, seconds));
+        result.put("endpoints", endpoints);
+        result.put("passed", passed);
+        return result;
+    }
+
+    private Map<String, Object> print(String name, Histogram histogram, long failed, double seconds) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requests", histogram.getTotalCount());
+        result.put("errors", failed);
+        result.put("requestsPerSecond", histogram.getTotalCount() / seconds);
+        result.put("p50Ms", millis(histogram.getValueAtPercentile(50)));
+        result.put("p99Ms", millis(histogram.getValueAtPercentile(99)));
+        result.put("p999Ms", millis(histogram.getValueAtPercentile(99.9)));
+        result.put("maxMs", millis(histogram.getMaxValue()));
+        System.out.printf("%-17s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(), failed,
+                result.get("requestsPerSecond"), result.get("p50Ms"), result.get("p99Ms"), result.get("p999Ms"),
+                result.get("maxMs"));
+        return result;
+    }
+
+    private boolean withinGates(String name, Histogram histogram, long failed) {
+        boolean passed = true;
+        double p99 = millis(histogram.getValueAtPercentile(99));
+        if (options.maxP99Ms() > 0 && p99 > options.maxP99Ms()) {
+            System.out.printf("%s p99 %.2f ms exceeds %.2f ms%n", name, p99, options.maxP99Ms());
+            passed = false;
+        }
+        double errorRate = histogram.getTotalCount() == 0 ? 0 : (double) failed / histogram.getTotalCount();
+        if (errorRate > options.maxErrorRate()) {
+            System.out.printf("%s error rate %.4f exceeds %.4f%n", name, errorRate, options.maxErrorRate());
+            passed = false;
+        }
+        return passed;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private record Options(int devices, int threads, int warmup, int duration, int rate, Map<Operation, Integer> mix,
+                           List<String> stacks, File out, double maxP99Ms, double maxErrorRate) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                String[] pair = arg.split("=", 2);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Expected key=value, got " + arg);
+                }
+                values.put(pair[0], pair[1]);
+            }
+            Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+            if (values.containsKey("mix")) {
+                for (String weight : values.get("mix").split(",")) {
+                    String[] pair = weight.split(":", 2);
+                    mix.put(Operation.valueOf(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+                }
+            } else {
+                for (Operation operation : Operation.values()) {
+                    mix.put(operation, operation.getDefaultWeight());
+                }
+            }
+            return new Options(
+                    Integer.parseInt(values.getOrDefault("devices", "100000")),
+                    Integer.parseInt(values.getOrDefault("threads", "16")),
+                    Integer.parseInt(values.getOrDefault("warmup", "10")),
+                    Integer.parseInt(values.getOrDefault("duration", "60")),
+                    Integer.parseInt(values.getOrDefault("rate", "0")),
+                    mix,
+                    Arrays.stream(values.getOrDefault("stack", SERVLET_STACK).split(",")).map(String::trim).toList(),
+                    new File(values.getOrDefault("out", "target/loadtest-result.json")),
+                    Double.parseDouble(values.getOrDefault("maxP99Ms", "0")),
+                    Double.parseDouble(values.getOrDefault("maxErrorRate", "0.01")));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.test.mdm.perf.load;
+
+import com.test.mdm.util.DeviceCursor;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.test.mdm.perf.PerfEnvironment.FIRST_SEEDED_DEVICE_ID;
+
+/**
+ * Requests of the mixed workload, one per {@code DeviceController} endpoint class, with their default weights.
+ */
+enum Operation {
+
+    GET_BY_ID(40, target -> target.get("/devices/" + target.randomId())),
+    GET_BY_DEVICE_ID(20, target -> target.get("/devices/deviceId/" + target.randomDeviceId())),
+    PAGE(5, target -> target.get("/devices/page?size=100&cursor=" + DeviceCursor.encode(target.randomId()))),
+    SEARCH(5, target -> target.get("/devices/search?sort=DEVICE_NAME&size=50&deviceNamePrefix="
+            + URLEncoder.encode("Device " + (1 + target.random().nextInt(999)), StandardCharsets.UTF_8))),
+    CREATE(5, target -> target.send("POST", "/devices",
+            deviceJson(target.nextDeviceId.incrementAndGet(), "Load test", "ACTIVE"))),
+    UPDATE(10, target -> {
+        long offset = target.randomOffset();
+        return target.send("PUT", "/devices/" + (target.firstId + offset),
+                deviceJson(FIRST_SEEDED_DEVICE_ID + offset, "Device " + (offset + 1), target.randomStatus()));
+    }),
+    UPDATE_STATUS(15, target -> target.send("PATCH", "/devices/" + target.randomId(),
+            "{\"status\":\"" + target.randomStatus() + "\"}"));
+
+    private final int defaultWeight;
+    private final Function<Target, HttpRequest> request;
+
+    Operation(int defaultWeight, Function<Target, HttpRequest> request) {
+        this.defaultWeight = defaultWeight;
+        this.request = request;
+    }
+
+    int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    HttpRequest request(Target target) {
+        return request.apply(target);
+    }
+
+    private static String deviceJson(long deviceId, String deviceName, String status) {
+        return "{\"deviceId\":" + deviceId + ",\"deviceName\":\"" + deviceName + "\",\"status\":\"" + status + "\"}";
+    }
+
+    /**
+     * The running application and its seeded devices, created devices get deviceIds above the seeded range.
+     */
+    static final class Target {
+
+        private final URI baseUri;
+        private final long firstId;
+        private final int devices;
+        private final AtomicLong nextDeviceId;
+
+        Target(URI baseUri, long firstId, int devices) {
+            this.baseUri = baseUri;
+            this.firstId = firstId;
+            this.devices = devices;
+            this.nextDeviceId = new AtomicLong(FIRST_SEEDED_DEVICE_ID + devices + 1_000_000L);
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(baseUri.resolve(path)).GET().build();
+        }
+
+        private HttpRequest send(String method, String path, String json) {
+            return HttpRequest.newBuilder(baseUri.resolve(path))
+                    .header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(json))
+                    .build();
+        }
+
+        private ThreadLocalRandom random() {
+            return ThreadLocalRandom.current();
+        }
+
+        private long randomOffset() {
+            return random().nextLong(devices);
+        }
+
+        private long randomId() {
+            return firstId + randomOffset();
+        }
+
+        private long randomDeviceId() {
+            return FIRST_SEEDED_DEVICE_ID + randomOffset();
+        }
+
+        private String randomStatus() {
+            return random().nextBoolean() ? "ACTIVE" : "BLOCKED";
+        }
+    }
+}
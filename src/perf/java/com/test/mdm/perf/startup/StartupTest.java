@@ -0,0 +1,229 @@
+package com.test.mdm.perf.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the startup of the packaged jar with the prod profile, as a replica starts: the schema is migrated once by
+ * the migrate profile, then every run is a fresh JVM of the extracted jar until Spring Boot reports it started.
+ * Modes are the plain jar, the jar with a CDS archive from a training run and, when the jar was packaged with
+ * {@code -Paot}, both again with AOT initialization.
+ * <p>
+ * Arguments are {@code key=value} pairs:
+ * <ul>
+ *     <li>{@code jar} - the packaged application</li>
+ *     <li>{@code runs} - measured starts per mode, 5 by default, after one unmeasured start</li>
+ *     <li>{@code out} - JSON result file, target/startup-result.json by default</li>
+ *     <li>{@code maxSeconds} - gate, the run exits with 1 when the median start of a mode takes longer</li>
+ * </ul>
+ */
+public final class StartupTest {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\w+ in ([\\d.]+) seconds \\(process running for ([\\d.]+)\\)");
+    private static final String AOT_INITIALIZER = "BOOT-INF/classes/com/test/mdm/MdmApplication__ApplicationContextInitializer.class";
+    private static final long START_TIMEOUT_SECONDS = 120;
+
+    private final Options options;
+    private final File extracted;
+    private final List<String> applicationArgs;
+
+    private StartupTest(Options options, File extracted, List<String> applicationArgs) {
+        this.options = options;
+        this.extracted = extracted;
+        this.applicationArgs = applicationArgs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        boolean passed;
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            String url = postgres.getJdbcUrl("postgres", "postgres");
+            List<String> applicationArgs = List.of(
+                    "--spring.datasource.url=" + url,
+                    "--spring.liquibase.url=" + url,
+                    "--spring.devtools.restart.enabled=false");
+            File extracted = extract(options.jar());
+            StartupTest startupTest = new StartupTest(options, extracted, applicationArgs);
+            startupTest.migrate();
+            passed = startupTest.run(hasAotInitializer(options.jar()));
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * The CDS archive only covers classes loaded from a plain class path, as the Dockerfile runs the application.
+     */
+    private static File extract(File jar) throws IOException, InterruptedException {
+        File destination = new File(jar.getParentFile(), "startup");
+        Process process = new ProcessBuilder("java", "-Djarmode=tools", "-jar", jar.getAbsolutePath(),
+                "extract", "--force", "--destination", destination.getAbsolutePath())
+                .inheritIO()
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Extracting " + jar + " failed");
+        }
+        return new File(destination, jar.getName());
+    }
+
+    private static boolean hasAotInitializer(File jar) throws IOException {
+        try (JarFile jarFile = new JarFile(jar)) {
+            return jarFile.getEntry(AOT_INITIALIZER) != null;
+        }
+    }
+
+    private void migrate() throws IOException, InterruptedException {
+        Process process = start(List.of(), List.of("--spring.profiles.active=prod,migrate"));
+        drain(process, null);
+        if (!process.waitFor(START_TIMEOUT_SECONDS, TimeUnit.SECONDS) || process.exitValue() != 0) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Migration failed");
+        }
+    }
+
+    private boolean run(boolean aot) throws IOException, InterruptedException {
+        File archive = new File(extracted.getParentFile(), "application.jsa");
+        List<String> cds = List.of("-XX:SharedArchiveFile=" + archive.getAbsolutePath(), "-Xlog:cds=off", "-Xlog:cds+dynamic=off");
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("plain", List.of());
+        modes.put("cds", cds);
+        if (aot) {
+            modes.put("aot", List.of("-Dspring.aot.enabled=true"));
+            List<String> aotCds = new ArrayList<>(cds);
+            aotCds.add("-Dspring.aot.enabled=true");
+            modes.put("aot+cds", aotCds);
+        }
+        train(archive, aot);
+        System.out.printf("Startup test: %d runs per mode of %s%n", options.runs(), extracted);
+        System.out.printf("%-10s %12s %12s %12s%n", "mode", "median (s)", "min (s)", "max (s)");
+        Map<String, Object> result = new LinkedHashMap<>();
+        boolean passed = true;
+        for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+            measure(mode.getValue());
+            double[] seconds = new double[options.runs()];
+            for (int i = 0; i < seconds.length; i++) {
+                seconds[i] = measure(mode.getValue());
+            }
+            Arrays.sort(seconds);
+            double median = seconds[seconds.length / 2];
+            System.out.printf("%-10s %12.3f %12.3f %12.3f%n", mode.getKey(), median, seconds[0], seconds[seconds.length - 1]);
+            Map<String, Object> modeResult = new LinkedHashMap<>();
+            modeResult.put("medianSeconds", median);
+            modeResult.put("minSeconds", seconds[0]);
+            modeResult.put("maxSeconds", seconds[seconds.length - 1]);
+            result.put(mode.getKey(), modeResult);
+            if (options.maxSeconds() > 0 && median > options.maxSeconds()) {
+                System.out.printf("FAILED %s: median %.3f s > %.3f s%n", mode.getKey(), median, options.maxSeconds());
+                passed = false;
+            }
+        }
+        result.put("passed", passed);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(options.out(), result);
+        System.out.printf("%nResults written to %s, %s%n", options.out(), passed ? "PASSED" : "FAILED");
+        return passed;
+    }
+
+    /**
+     * Training run that dumps the classes loaded up to the refreshed context, before anything is started.
+     */
+    private void train(File archive, boolean aot) throws IOException, InterruptedException {
+        List<String> jvmArgs = new ArrayList<>(List.of("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath(),
+                "-Dspring.context.exit=onRefresh"));
+        if (aot) {
+            jvmArgs.add("-Dspring.aot.enabled=true");
+        }
+        Process process = start(jvmArgs, List.of("--spring.profiles.active=prod"));
+        drain(process, null);
+        if (!process.waitFor(START_TIMEOUT_SECONDS, TimeUnit.SECONDS) || !archive.isFile()) {
+            process.destroyForcibly();
+            throw new IllegalStateException("CDS training run failed");
+        }
+    }
+
+    /**
+     * @return seconds from JVM start until the application reported it started
+     */
+    private double measure(List<String> jvmArgs) throws IOException, InterruptedException {
+        Process process = start(jvmArgs, List.of("--spring.profiles.active=prod", "--server.port=0"));
+        try {
+            double[] started = {-1};
+            drain(process, started);
+            if (started[0] < 0) {
+                throw new IllegalStateException("Application did not start with " + jvmArgs);
+            }
+            return started[0];
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private Process start(List<String> jvmArgs, List<String> args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("java");
+        command.addAll(jvmArgs);
+        command.add("-jar");
+        command.add(extracted.getAbsolutePath());
+        command.addAll(applicationArgs);
+        command.addAll(args);
+        return new ProcessBuilder(command).redirectErrorStream(true).start();
+    }
+
+    /**
+     * Reads the output until the process ends or, when {@code started} is given, until the start is reported.
+     */
+    private static void drain(Process process, double[] started) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.contains(" ERROR ")) {
+                System.out.println(line);
+            }
+            Matcher matcher = STARTED.matcher(line);
+            if (started != null && matcher.find()) {
+                started[0] = Double.parseDouble(matcher.group(2));
+                return;
+            }
+        }
+    }
+
+    private record Options(File jar, int runs, File out, double maxSeconds) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                String[] pair = arg.split("=", 2);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Expected key=value, got " + arg);
+                }
+                values.put(pair[0], pair[1]);
+            }
+            if (!values.containsKey("jar")) {
+                throw new IllegalArgumentException("jar is required");
+            }
+            return new Options(
+                    new File(values.get("jar")),
+                    Integer.parseInt(values.getOrDefault("runs", "5")),
+                    new File(values.getOrDefault("out", "target/startup-result.json")),
+                    Double.parseDouble(values.getOrDefault("maxSeconds", "0")));
+        }
+    }
+}
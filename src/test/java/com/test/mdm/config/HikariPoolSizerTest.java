@@ -0,0 +1,42 @@
+package com.test.mdm.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HikariPoolSizerTest {
+
+    private HikariDataSource process(MockEnvironment environment) {
+        HikariPoolSizer sizer = new HikariPoolSizer();
+        sizer.setEnvironment(environment);
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(15);
+        sizer.postProcessBeforeInitialization(dataSource, "dataSource");
+        return dataSource;
+    }
+
+    @Test
+    void testPostProcess_withAutoSize_thenFixedPoolFromDatabaseCores() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("mdm.datasource.pool.auto-size", "true")
+                .withProperty("mdm.datasource.pool.database-cores", "8");
+
+        HikariDataSource dataSource = process(environment);
+
+        assertThat(dataSource.getMaximumPoolSize()).isEqualTo(17);
+        assertThat(dataSource.getMinimumIdle()).isEqualTo(17);
+    }
+
+    @Test
+    void testPostProcess_withExplicitPoolSize_thenKeepIt() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("mdm.datasource.pool.auto-size", "true")
+                .withProperty(HikariPoolSizer.MAXIMUM_POOL_SIZE, "15");
+
+        HikariDataSource dataSource = process(environment);
+
+        assertThat(dataSource.getMaximumPoolSize()).isEqualTo(15);
+    }
+}
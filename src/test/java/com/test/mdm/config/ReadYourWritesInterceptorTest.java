@@ -0,0 +1,91 @@
+package com.test.mdm.config;
+
+import com.test.mdm.controller.DeviceController;
+import com.test.mdm.dto.request.DeviceRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class ReadYourWritesInterceptorTest {
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Mock
+    private DeviceController deviceController;
+
+    @AfterEach
+    void tearDown() {
+        DataSourceRouting.clear();
+    }
+
+    private static ReadYourWritesInterceptor interceptor(String clientHeader, boolean byAddress) {
+        return new ReadYourWritesInterceptor(
+                new RequestLimitProperties(clientHeader, new RequestLimitProperties.RateLimit(false, null, null, null),
+                        new RequestLimitProperties.Shedding(false, 10, 100, Duration.ofSeconds(2))),
+                new ReplicaDataSourceProperties(true, List.of(), Duration.ofSeconds(1), Duration.ofSeconds(2),
+                        Duration.ofSeconds(5), byAddress));
+    }
+
+    private static MockHttpServletRequest request(String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (client != null) {
+            request.addHeader("X-Client-Id", client);
+        }
+        return request;
+    }
+
+    /**
+     * @return whether the read that follows the client's write was pinned to the primary
+     */
+    private boolean readAfterWrite(ReadYourWritesInterceptor interceptor, String writer, String reader) throws Exception {
+        HandlerMethod write = new HandlerMethod(deviceController,
+                DeviceController.class.getMethod("createDevice", DeviceRequest.class));
+        HandlerMethod read = new HandlerMethod(deviceController,
+                DeviceController.class.getMethod("getDeviceById", Long.class));
+        MockHttpServletRequest writeRequest = request(writer);
+        interceptor.preHandle(writeRequest, response, write);
+        interceptor.afterCompletion(writeRequest, response, write, null);
+
+        interceptor.preHandle(request(reader), response, read);
+        return DataSourceRouting.isPrimaryRequired();
+    }
+
+    @Test
+    void testPreHandle_withTrustedClientAfterItsWrite_thenReadFromPrimary() throws Exception {
+        ReadYourWritesInterceptor interceptor = interceptor("X-Client-Id", false);
+
+        assertThat(readAfterWrite(interceptor, "a", "a")).isTrue();
+    }
+
+    @Test
+    void testPreHandle_withOtherClientAfterWrite_thenReadFromReplica() throws Exception {
+        ReadYourWritesInterceptor interceptor = interceptor("X-Client-Id", false);
+
+        assertThat(readAfterWrite(interceptor, "a", "b")).isFalse();
+    }
+
+    @Test
+    void testPreHandle_withAnonymousClientsBehindOneAddress_thenReadFromReplica() throws Exception {
+        ReadYourWritesInterceptor interceptor = interceptor(null, false);
+
+        assertThat(readAfterWrite(interceptor, "a", "b")).isFalse();
+    }
+
+    @Test
+    void testPreHandle_withAnonymousClientsAndAddressOptIn_thenReadFromPrimary() throws Exception {
+        ReadYourWritesInterceptor interceptor = interceptor(null, true);
+
+        assertThat(readAfterWrite(interceptor, null, null)).isTrue();
+    }
+}
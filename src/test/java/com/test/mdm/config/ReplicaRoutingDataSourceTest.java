@@ -0,0 +1,96 @@
+package com.test.mdm.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private Connection replicaConnection;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new ReplicaRoutingDataSource(primary, Map.of("replica-1", replica), Duration.ofSeconds(1),
+                meterRegistry);
+    }
+
+    @Test
+    void testGetConnection_withCaughtUpReplica_thenReplicaUnlessPrimaryRequired() throws SQLException {
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(replicaConnection.createStatement().executeQuery(anyString()).getDouble(1)).thenReturn(0.2);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        dataSource.checkReplicas();
+
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+        assertThat(DataSourceRouting.onPrimary(this::connection)).isSameAs(primaryConnection);
+        assertThat(meterRegistry.get(ReplicaRoutingDataSource.LAG_METRIC).gauge().value()).isEqualTo(0.2);
+    }
+
+    @Test
+    void testGetConnection_withLaggingReplica_thenPrimary() throws SQLException {
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(replicaConnection.createStatement().executeQuery(anyString()).getDouble(1)).thenReturn(5.0);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        dataSource.checkReplicas();
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(meterRegistry.get(ReplicaRoutingDataSource.HEALTHY_METRIC).gauge().value()).isZero();
+    }
+
+    @Test
+    void testGetConnection_withReplicaDownSinceCheck_thenFailOverToPrimary() throws SQLException {
+        when(replica.getConnection())
+                .thenReturn(replicaConnection)
+                .thenThrow(new SQLTransientConnectionException("Connection is not available"));
+        when(replicaConnection.createStatement().executeQuery(anyString()).getDouble(1)).thenReturn(0.0);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        dataSource.checkReplicas();
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        verify(replica, times(2)).getConnection();
+        assertThat(meterRegistry.get(ReplicaRoutingDataSource.READS_METRIC).tag("reason", "no_replica").counter().count())
+                .isEqualTo(2);
+    }
+
+    private Connection connection() {
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
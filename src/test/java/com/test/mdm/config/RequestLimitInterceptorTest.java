@@ -0,0 +1,119 @@
+package com.test.mdm.config;
+
+import com.test.mdm.controller.DeviceController;
+import com.test.mdm.dto.request.DeviceRequest;
+import com.test.mdm.exception.ServiceOverloadedException;
+import com.test.mdm.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class RequestLimitInterceptorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private ObjectProvider<DataSource> dataSource;
+
+    @Mock
+    private DeviceController deviceController;
+
+    private RequestLimitInterceptor interceptor(int listCapacity, int maxInFlight) {
+        return interceptor("X-Client-Id", listCapacity, maxInFlight);
+    }
+
+    private RequestLimitInterceptor interceptor(String clientHeader, int listCapacity, int maxInFlight) {
+        RequestLimitProperties properties = new RequestLimitProperties(clientHeader,
+                new RequestLimitProperties.RateLimit(true,
+                        new RequestLimitProperties.Budget(listCapacity, 0.001),
+                        new RequestLimitProperties.Budget(100, 50),
+                        new RequestLimitProperties.Budget(100, 50)),
+                new RequestLimitProperties.Shedding(true, 10, maxInFlight, Duration.ofSeconds(2)));
+        return new RequestLimitInterceptor(properties, dataSource, meterRegistry);
+    }
+
+    private HandlerMethod handler(String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return new HandlerMethod(deviceController, DeviceController.class.getMethod(name, parameterTypes));
+    }
+
+    private static MockHttpServletRequest request(String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Client-Id", client);
+        return request;
+    }
+
+    @Test
+    void testPreHandle_overListBudget_thenThrottleOnlyThatClientAndEndpoint() throws Exception {
+        RequestLimitInterceptor interceptor = interceptor(2, 100);
+        HandlerMethod list = handler("getDevices", String.class);
+        HandlerMethod read = handler("getDeviceById", Long.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = request("a");
+            interceptor.preHandle(request, response, list);
+            interceptor.afterCompletion(request, response, list, null);
+        }
+
+        assertThatThrownBy(() -> interceptor.preHandle(request("a"), response, list))
+                .isInstanceOf(TooManyRequestsException.class)
+                .satisfies(ex -> assertThat(((TooManyRequestsException) ex).getRetryAfter()).isPositive());
+        assertThat(interceptor.preHandle(request("a"), response, read)).isTrue();
+        assertThat(interceptor.preHandle(request("b"), response, list)).isTrue();
+        assertThat(meterRegistry.get(RequestLimitInterceptor.THROTTLED_METRIC).tag("endpoint", "list").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testPreHandle_withoutTrustedIdentity_thenCountOnlyAuthenticatedClients() throws Exception {
+        RequestLimitInterceptor interceptor = interceptor(null, 1, 100);
+        HandlerMethod list = handler("getDevices", String.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockHttpServletRequest authenticated = request("a");
+        authenticated.setUserPrincipal(() -> "agent");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(interceptor.preHandle(request("a"), response, list)).isTrue();
+            assertThat(interceptor.preHandle(new MockHttpServletRequest(), response, list)).isTrue();
+        }
+        assertThat(interceptor.preHandle(authenticated, response, list)).isTrue();
+
+        assertThatThrownBy(() -> interceptor.preHandle(authenticated, response, list))
+                .isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void testPreHandle_withTooManyInFlight_thenShedListsBeforeWrites() throws Exception {
+        RequestLimitInterceptor interceptor = interceptor(100, 4);
+        HandlerMethod list = handler("getDevices", String.class);
+        HandlerMethod create = handler("createDevice", DeviceRequest.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockHttpServletRequest first = request("a");
+        interceptor.preHandle(first, response, create);
+        interceptor.preHandle(request("b"), response, create);
+
+        assertThatThrownBy(() -> interceptor.preHandle(request("c"), response, list))
+                .isInstanceOf(ServiceOverloadedException.class);
+        assertThat(interceptor.preHandle(request("c"), response, create)).isTrue();
+
+        interceptor.afterCompletion(first, response, create, null);
+        interceptor.afterCompletion(first, response, create, null);
+
+        assertThat(interceptor.inFlight()).isEqualTo(2);
+        assertThat(meterRegistry.get(RequestLimitInterceptor.SHED_METRIC)
+                .tags("endpoint", "list", "reason", "in_flight").counter().count()).isEqualTo(1);
+    }
+}
@@ -1,13 +1,24 @@
 package com.test.mdm.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.test.mdm.config.GlobalExceptionHandler;
+import com.test.mdm.dto.DeviceBatchDto;
 import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.DevicePageDto;
+import com.test.mdm.dto.DeviceStatusDto;
+import com.test.mdm.dto.request.DeviceBatchRequest;
+import com.test.mdm.dto.request.DeviceFilter;
 import com.test.mdm.dto.request.DeviceRequest;
+import com.test.mdm.dto.request.DeviceSortField;
 import com.test.mdm.dto.request.UpdateDeviceStatusRequest;
 import com.test.mdm.entity.Status;
+import com.test.mdm.exception.InvalidCursorException;
 import com.test.mdm.exception.NotFoundException;
+import com.test.mdm.exception.PreconditionFailedException;
 import com.test.mdm.service.DeviceService;
+import com.test.mdm.service.DeviceStatusCoalescer;
+import com.test.mdm.service.DeviceStatusIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,17 +30,26 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.lang.reflect.Field;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static com.test.mdm.util.Constant.DEVICE_PRECONDITION_FAILED;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -43,28 +63,45 @@ class DeviceControllerTest {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private final ObjectMapper cborMapper = new CBORMapper();
+
     @Mock
     private DeviceService deviceService;
 
+    @Mock
+    private DeviceStatusCoalescer deviceStatusCoalescer;
+
+    @Mock
+    private DeviceStatusIndex deviceStatusIndex;
+
     @InjectMocks
     private DeviceController deviceController;
 
     @BeforeEach
     void setUp() {
         mockMvc = MockMvcBuilders
-                .standaloneSetup(new DeviceController(deviceService))
+                .standaloneSetup(new DeviceController(deviceService, deviceStatusCoalescer, deviceStatusIndex, objectMapper,
+                        List.of(new MappingJackson2CborHttpMessageConverter(cborMapper))))
                 .setControllerAdvice(new GlobalExceptionHandler())
                 .build();
     }
 
     @Test
     void testGetDevices_thenReturnDevicesList() throws Exception {
-        DeviceDto deviceDto = new DeviceDto(1L, 1L, "New Device", Status.ACTIVE, null);
+        DeviceDto deviceDto = new DeviceDto(1L, 1L, "New Device", Status.ACTIVE, null, 0L);
         List<DeviceDto> deviceDtos = Collections.singletonList(deviceDto);
 
-        when(deviceService.getDevices()).thenReturn(deviceDtos);
+        doAnswer(invocation -> {
+            Consumer<DeviceDto> consumer = invocation.getArgument(0);
+            deviceDtos.forEach(consumer);
+            return null;
+        }).when(deviceService).streamDevices(any());
+
+        MvcResult result = mockMvc.perform(get("/devices"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
 
-        mockMvc.perform(get("/devices"))
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$[0].id").value(deviceDto.getId()))
@@ -73,19 +110,128 @@ class DeviceControllerTest {
                 .andExpect(jsonPath("$[0].status").value(deviceDto.getStatus().name()));
     }
 
+    @Test
+    void testGetDevices_acceptingCbor_thenReturnCborArray() throws Exception {
+        DeviceDto deviceDto = new DeviceDto(1L, 101L, "New Device", Status.ACTIVE, null, 0L);
+
+        doAnswer(invocation -> {
+            Consumer<DeviceDto> consumer = invocation.getArgument(0);
+            consumer.accept(deviceDto);
+            return null;
+        }).when(deviceService).streamDevices(any());
+
+        MvcResult result = mockMvc.perform(get("/devices").accept(MediaType.APPLICATION_CBOR, MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(cborMapper.readValue(body, DeviceDto[].class)).containsExactly(deviceDto);
+    }
+
+    @Test
+    void testCreateDevice_withCborBody_thenReturnCreatedDevice() throws Exception {
+        DeviceRequest request = new DeviceRequest(101L, "New Device", "ACTIVE");
+        DeviceDto created = new DeviceDto(1L, 101L, "New Device", Status.ACTIVE, null, 0L);
+        when(deviceService.createDevice(request)).thenReturn(created);
+
+        mockMvc.perform(post("/devices")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content(cborMapper.writeValueAsBytes(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1L));
+    }
+
+    @Test
+    void testStreamDevices_thenReturnNdjson() throws Exception {
+        DeviceDto first = new DeviceDto(1L, 101L, "First Device", Status.ACTIVE, null, 0L);
+        DeviceDto second = new DeviceDto(2L, 102L, "Second Device", Status.BLOCKED, null, 0L);
+
+        doAnswer(invocation -> {
+            Consumer<DeviceDto> consumer = invocation.getArgument(0);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(deviceService).streamDevices(any());
+
+        MvcResult result = mockMvc.perform(get("/devices/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(objectMapper.writeValueAsString(first) + "\n"
+                        + objectMapper.writeValueAsString(second) + "\n"));
+    }
+
+    @Test
+    void testGetDevicesPage_thenReturnPageWithCursor() throws Exception {
+        DeviceDto deviceDto = new DeviceDto(1L, 101L, "New Device", Status.ACTIVE, null, 0L);
+        when(deviceService.getDevicesPage("MQ", 1)).thenReturn(new DevicePageDto(List.of(deviceDto), "Mg"));
+
+        mockMvc.perform(get("/devices/page").param("cursor", "MQ").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(deviceDto.getId()))
+                .andExpect(jsonPath("$.nextCursor").value("Mg"));
+    }
+
+    @Test
+    void testGetDevicesPage_withInvalidCursor_thenShouldResponseBadRequest() throws Exception {
+        when(deviceService.getDevicesPage("bad", null)).thenThrow(new InvalidCursorException("Invalid cursor bad"));
+
+        mockMvc.perform(get("/devices/page").param("cursor", "bad"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor bad"));
+    }
+
+    @Test
+    void testSearchDevices_thenBindFilterAndSort() throws Exception {
+        DeviceDto deviceDto = new DeviceDto(1L, 101L, "New Device", Status.ACTIVE, null, 0L);
+        DeviceFilter filter = new DeviceFilter(Status.ACTIVE, "New", null, LocalDateTime.of(2025, 3, 14, 0, 0), null);
+        when(deviceService.searchDevices(filter, DeviceSortField.DEVICE_NAME, Sort.Direction.DESC, null, 10))
+                .thenReturn(new DevicePageDto(List.of(deviceDto), null));
+
+        mockMvc.perform(get("/devices/search")
+                        .param("status", "ACTIVE")
+                        .param("deviceNamePrefix", "New")
+                        .param("createdFrom", "2025-03-14T00:00:00")
+                        .param("sort", "DEVICE_NAME")
+                        .param("direction", "DESC")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].deviceName").value(deviceDto.getDeviceName()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
     @Test
     void getDeviceById_shouldReturnDevice() throws Exception {
-        DeviceDto deviceDto = new DeviceDto(1L, 101L, "New Device", Status.ACTIVE, null);
+        DeviceDto deviceDto = new DeviceDto(1L, 101L, "New Device", Status.ACTIVE, null, 0L);
         when(deviceService.getDeviceById(1L)).thenReturn(deviceDto);
 
         mockMvc.perform(get("/devices/1"))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.0\""))
                 .andExpect(jsonPath("$.id").value(deviceDto.getId()))
                 .andExpect(jsonPath("$.deviceId").value(deviceDto.getDeviceId()))
                 .andExpect(jsonPath("$.deviceName").value(deviceDto.getDeviceName()))
                 .andExpect(jsonPath("$.status").value(deviceDto.getStatus().name()));
     }
 
+    @Test
+    void getDeviceById_withMatchingIfNoneMatch_shouldReturnNotModified() throws Exception {
+        DeviceDto deviceDto = new DeviceDto(1L, 101L, "New Device", Status.ACTIVE, null, 4L);
+        when(deviceService.getDeviceById(1L)).thenReturn(deviceDto);
+
+        mockMvc.perform(get("/devices/1").header(HttpHeaders.IF_NONE_MATCH, "\"1.4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.4\""))
+                .andExpect(content().string(""));
+    }
+
     @Test
     void getDeviceById_withInvalidId_shouldReturnDevice() throws Exception {
         Long nonExistentId = 999L;
@@ -98,7 +244,7 @@ class DeviceControllerTest {
 
     @Test
     void getDevicesByDeviceId_shouldReturnDevice() throws Exception {
-        DeviceDto deviceDto = new DeviceDto(1L, 101L, "New Device", Status.ACTIVE, null);
+        DeviceDto deviceDto = new DeviceDto(1L, 101L, "New Device", Status.ACTIVE, null, 0L);
         when(deviceService.getDevicesByDeviceId(101L)).thenReturn(deviceDto);
 
         mockMvc.perform(get("/devices/deviceId/101"))
@@ -109,10 +255,48 @@ class DeviceControllerTest {
                 .andExpect(jsonPath("$.status").value(deviceDto.getStatus().name()));
     }
 
+    @Test
+    void getDeviceStatus_shouldReturnStatusFromIndex() throws Exception {
+        when(deviceStatusIndex.getDeviceStatus(101L)).thenReturn(new DeviceStatusDto(101L, Status.BLOCKED));
+
+        mockMvc.perform(get("/devices/deviceId/101/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deviceId").value(101L))
+                .andExpect(jsonPath("$.status").value("BLOCKED"));
+        verifyNoInteractions(deviceService);
+    }
+
+    @Test
+    void getDevicesBatch_shouldReturnDevicesAndMissingKeys() throws Exception {
+        DeviceBatchRequest request = new DeviceBatchRequest(List.of(1L, 2L), List.of(103L));
+        DeviceDto deviceDto = new DeviceDto(1L, 101L, "New Device", Status.ACTIVE, null, 0L);
+        when(deviceService.getDevicesBatch(request))
+                .thenReturn(new DeviceBatchDto(List.of(deviceDto), List.of(2L), List.of(103L)));
+
+        mockMvc.perform(post("/devices/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(1L))
+                .andExpect(jsonPath("$.missingIds[0]").value(2L))
+                .andExpect(jsonPath("$.missingDeviceIds[0]").value(103L));
+    }
+
+    @Test
+    void getDevicesBatch_withTooManyKeys_thenShouldResponseBadRequest() throws Exception {
+        List<Long> ids = Stream.iterate(1L, id -> id + 1).limit(DeviceBatchRequest.MAX_KEYS + 1).toList();
+
+        mockMvc.perform(post("/devices/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new DeviceBatchRequest(ids, null))))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(deviceService);
+    }
+
     @Test
     void createDevice_shouldReturnCreatedDevice() throws Exception {
         DeviceRequest request = new DeviceRequest(102L, "New Device", "ACTIVE");
-        DeviceDto response = new DeviceDto(1L, 102L, "New Device", Status.ACTIVE, null);
+        DeviceDto response = new DeviceDto(1L, 102L, "New Device", Status.ACTIVE, null, 0L);
         when(deviceService.createDevice(any(DeviceRequest.class))).thenReturn(response);
 
         mockMvc.perform(post("/devices")
@@ -139,8 +323,8 @@ class DeviceControllerTest {
     @Test
     void updateDevice_shouldReturnUpdatedDevice() throws Exception {
         DeviceRequest request = new DeviceRequest(101L, "Updated Device", "BLOCKED");
-        DeviceDto response = new DeviceDto(1L, 101L, "Updated Device", Status.BLOCKED, null);
-        when(deviceService.updateDevice(eq(1L), any(DeviceRequest.class))).thenReturn(response);
+        DeviceDto response = new DeviceDto(1L, 101L, "Updated Device", Status.BLOCKED, null, 0L);
+        when(deviceService.updateDevice(eq(1L), any(DeviceRequest.class), isNull())).thenReturn(response);
 
         mockMvc.perform(put("/devices/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -150,6 +334,33 @@ class DeviceControllerTest {
                 .andExpect(jsonPath("$.status").value("BLOCKED"));
     }
 
+    @Test
+    void updateDevice_withIfMatch_shouldPassExpectedVersion() throws Exception {
+        DeviceRequest request = new DeviceRequest(101L, "Updated Device", "BLOCKED");
+        DeviceDto response = new DeviceDto(1L, 101L, "Updated Device", Status.BLOCKED, null, 3L);
+        when(deviceService.updateDevice(eq(1L), any(DeviceRequest.class), eq(2L))).thenReturn(response);
+
+        mockMvc.perform(put("/devices/1")
+                        .header(HttpHeaders.IF_MATCH, "\"1.2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.3\""));
+    }
+
+    @Test
+    void updateDevice_withIfMatchOfAnotherDevice_shouldResponsePreconditionFailed() throws Exception {
+        DeviceRequest request = new DeviceRequest(101L, "Updated Device", "BLOCKED");
+
+        mockMvc.perform(put("/devices/1")
+                        .header(HttpHeaders.IF_MATCH, "\"2.2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.message").value(String.format(DEVICE_PRECONDITION_FAILED, 1, "\"2.2\"")));
+        verifyNoInteractions(deviceService);
+    }
+
     @ParameterizedTest
     @MethodSource("invalidParametersForDeviceRequest")
     void updateDevice_withInvalidData_thenShouldResponseBadRequest(String fieldName, Object value, String message) throws Exception {
@@ -166,8 +377,8 @@ class DeviceControllerTest {
     @Test
     void updateDeviceStatus_shouldReturnUpdatedStatus() throws Exception {
         UpdateDeviceStatusRequest request = new UpdateDeviceStatusRequest(Status.BLOCKED.name());
-        DeviceDto response = new DeviceDto(1L, 101L, "New Device", Status.BLOCKED, null);
-        when(deviceService.updateDeviceStatus(eq(1L), any(UpdateDeviceStatusRequest.class))).thenReturn(response);
+        DeviceDto response = new DeviceDto(1L, 101L, "New Device", Status.BLOCKED, null, 0L);
+        when(deviceService.updateDeviceStatus(eq(1L), any(UpdateDeviceStatusRequest.class), isNull())).thenReturn(response);
 
         mockMvc.perform(patch("/devices/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -176,14 +387,54 @@ class DeviceControllerTest {
                 .andExpect(jsonPath("$.status").value("BLOCKED"));
     }
 
+    @Test
+    void updateDeviceStatus_withAsyncCoalescing_shouldReturnAccepted() throws Exception {
+        UpdateDeviceStatusRequest request = new UpdateDeviceStatusRequest(Status.BLOCKED.name());
+        when(deviceStatusCoalescer.isEnabled()).thenReturn(true);
+
+        mockMvc.perform(patch("/devices/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted());
+
+        verify(deviceStatusCoalescer, times(1)).updateDeviceStatus(eq(1L), any(UpdateDeviceStatusRequest.class));
+        verifyNoInteractions(deviceService);
+    }
+
+    @Test
+    void updateDeviceStatus_withIfMatchAndCoalescing_shouldUpdateDirectly() throws Exception {
+        UpdateDeviceStatusRequest request = new UpdateDeviceStatusRequest(Status.BLOCKED.name());
+        DeviceDto response = new DeviceDto(1L, 101L, "New Device", Status.BLOCKED, null, 3L);
+        when(deviceService.updateDeviceStatus(eq(1L), any(UpdateDeviceStatusRequest.class), eq(2L))).thenReturn(response);
+
+        mockMvc.perform(patch("/devices/1")
+                        .header(HttpHeaders.IF_MATCH, "\"1.2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.3\""));
+
+        verify(deviceStatusCoalescer, never()).updateDeviceStatus(any(), any());
+    }
+
     @Test
     void deleteDevice_shouldReturnNoContent() throws Exception {
-        doNothing().when(deviceService).deleteDevice(1L);
+        doNothing().when(deviceService).deleteDevice(1L, null);
 
         mockMvc.perform(delete("/devices/1"))
                 .andExpect(status().isOk());
 
-        verify(deviceService, times(1)).deleteDevice(1L);
+        verify(deviceService, times(1)).deleteDevice(1L, null);
+    }
+
+    @Test
+    void deleteDevice_withStaleIfMatch_shouldResponsePreconditionFailed() throws Exception {
+        doThrow(new PreconditionFailedException("Device with id 1 does not match 2"))
+                .when(deviceService).deleteDevice(1L, 2L);
+
+        mockMvc.perform(delete("/devices/1").header(HttpHeaders.IF_MATCH, "\"1.2\""))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.message").value("Device with id 1 does not match 2"));
     }
 
     private static Stream<Arguments> invalidParametersForDeviceRequest() {
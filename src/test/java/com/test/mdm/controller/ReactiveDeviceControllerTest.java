@@ -0,0 +1,102 @@
+package com.test.mdm.controller;
+
+import com.test.mdm.config.GlobalExceptionHandler;
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.request.DeviceRequest;
+import com.test.mdm.dto.request.UpdateDeviceStatusRequest;
+import com.test.mdm.entity.Status;
+import com.test.mdm.exception.NotFoundException;
+import com.test.mdm.service.ReactiveDeviceService;
+import com.test.mdm.util.DeviceETag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveDeviceControllerTest {
+
+    private static final DeviceDto DEVICE = new DeviceDto(1L, 101L, "New Device", Status.ACTIVE, null, 0L);
+
+    @Mock
+    private ReactiveDeviceService reactiveDeviceService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToController(new ReactiveDeviceController(reactiveDeviceService))
+                .controllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void testGetDevices_thenReturnJsonArray() {
+        DeviceDto second = new DeviceDto(2L, 102L, "Second Device", Status.BLOCKED, null, 0L);
+        when(reactiveDeviceService.streamDevices()).thenReturn(Flux.just(DEVICE, second));
+
+        webTestClient.get().uri("/devices").accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBodyList(DeviceDto.class).isEqualTo(List.of(DEVICE, second));
+    }
+
+    @Test
+    void testGetDeviceById_withMatchingIfNoneMatch_thenNotModified() {
+        when(reactiveDeviceService.getDeviceById(1L)).thenReturn(Mono.just(DEVICE));
+
+        webTestClient.get().uri("/devices/1").header(HttpHeaders.IF_NONE_MATCH, DeviceETag.of(DEVICE))
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void testGetDeviceById_withUnknownId_thenNotFoundMessage() {
+        when(reactiveDeviceService.getDeviceById(2L))
+                .thenReturn(Mono.error(new NotFoundException("Device with id 2 not found")));
+
+        webTestClient.get().uri("/devices/2")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("Device with id 2 not found");
+    }
+
+    @Test
+    void testCreateDevice_withInvalidRequest_thenBadRequestByField() {
+        webTestClient.post().uri("/devices")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new DeviceRequest(null, "", "ACTIVE"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.deviceId").isEqualTo("Device id is required")
+                .jsonPath("$.deviceName").isEqualTo("Device name is required");
+        verify(reactiveDeviceService, never()).createDevice(any());
+    }
+
+    @Test
+    void testUpdateDeviceStatus_whenOnlyBuffered_thenAccepted() {
+        UpdateDeviceStatusRequest request = new UpdateDeviceStatusRequest("BLOCKED");
+        when(reactiveDeviceService.updateDeviceStatus(1L, request, null)).thenReturn(Mono.empty());
+
+        webTestClient.patch().uri("/devices/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody().isEmpty();
+    }
+}
@@ -0,0 +1,124 @@
+package com.test.mdm.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.mdm.config.DeviceBulkProperties;
+import com.test.mdm.dto.BulkDeviceItemResultDto;
+import com.test.mdm.dto.BulkDeviceResultDto;
+import com.test.mdm.dto.request.BulkMode;
+import com.test.mdm.dto.request.DeviceRequest;
+import com.test.mdm.entity.DeviceEntity;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.repository.DeviceJdbcRepository;
+import com.test.mdm.repository.DeviceJdbcRepository.WrittenDevice;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.test.mdm.dto.BulkItemResult.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceBulkServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Captor
+    private ArgumentCaptor<List<DeviceEntity>> devices;
+
+    private DeviceBulkService deviceBulkService;
+
+    @BeforeEach
+    void setUp() {
+        deviceBulkService = new DeviceBulkService(deviceJdbcRepository, transactionTemplate,
+                Validation.buildDefaultValidatorFactory().getValidator(), meterRegistry,
+                new DeviceBulkProperties(2, 2, Duration.ofHours(1), Duration.ofMinutes(10)), eventPublisher);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void testIngestDevices_withNdjson_thenWriteInBatchesAndReportEveryItem() throws Exception {
+        when(deviceJdbcRepository.allocateIds(anyInt())).thenReturn(new long[]{1L, 2L}, new long[]{3L});
+        when(deviceJdbcRepository.insertAll(anyList(), eq(false))).thenReturn(
+                List.of(new WrittenDevice(1L, 101L, true), new WrittenDevice(2L, 102L, true)),
+                List.of());
+
+        BulkDeviceResultDto result = deviceBulkService.ingestDevices(requests("""
+                {"deviceId":101,"deviceName":"A","status":"ACTIVE"}
+                {"deviceId":102,"deviceName":"B","status":"BLOCKED"}
+                {"deviceId":103,"deviceName":"C","status":"ACTIVE"}
+                """), BulkMode.CREATE);
+
+        assertThat(result.getTotal()).isEqualTo(3);
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getItems())
+                .extracting(BulkDeviceItemResultDto::getId, BulkDeviceItemResultDto::getResult)
+                .containsExactly(tuple(1L, CREATED), tuple(2L, CREATED), tuple(null, DUPLICATE));
+        verify(deviceJdbcRepository, times(2)).insertAll(anyList(), eq(false));
+        verify(eventPublisher).publishEvent(new DeviceChangedEvent(ChangeType.CREATED, 2L, 102L));
+        assertThat(meterRegistry.counter("mdm.devices.bulk.rows", "mode", "CREATE", "result", "CREATED").count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void testIngestDevices_withJsonArray_thenRejectInvalidAndDuplicateDevices() throws Exception {
+        when(deviceJdbcRepository.allocateIds(1)).thenReturn(new long[]{7L});
+        when(deviceJdbcRepository.insertAll(anyList(), eq(true)))
+                .thenReturn(List.of(new WrittenDevice(5L, 101L, false)));
+
+        BulkDeviceResultDto result = deviceBulkService.ingestDevices(requests("""
+                [{"deviceId":101,"deviceName":"A","status":"ACTIVE"},
+                 {"deviceId":101,"deviceName":"A","status":"BLOCKED"},
+                 {"deviceId":102,"deviceName":"","status":"ACTIVE"},
+                 {"deviceId":103,"deviceName":"C","status":"LOST"}]
+                """), BulkMode.UPSERT);
+
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getItems())
+                .extracting(BulkDeviceItemResultDto::getResult)
+                .containsExactly(UPDATED, DUPLICATE, INVALID, INVALID);
+        assertThat(result.getItems().get(2).getErrors()).containsKey("deviceName");
+        assertThat(result.getItems().get(3).getErrors()).containsEntry("status", "Unknown status LOST");
+
+        verify(deviceJdbcRepository).insertAll(devices.capture(), eq(true));
+        assertThat(devices.getValue())
+                .singleElement()
+                .extracting(DeviceEntity::getId, DeviceEntity::getDeviceId)
+                .containsExactly(7L, 101L);
+    }
+
+    private MappingIterator<DeviceRequest> requests(String body) throws Exception {
+        return objectMapper.readerFor(DeviceRequest.class).readValues(body);
+    }
+}
@@ -0,0 +1,159 @@
+package com.test.mdm.service;
+
+import com.test.mdm.config.DeviceBulkProperties;
+import com.test.mdm.dto.BulkJobState;
+import com.test.mdm.dto.BulkStatusJobDto;
+import com.test.mdm.dto.request.BulkStatusRequest;
+import com.test.mdm.dto.request.DeviceFilter;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.exception.NotFoundException;
+import com.test.mdm.repository.BulkStatusJobRepository;
+import com.test.mdm.repository.DeviceJdbcRepository;
+import com.test.mdm.repository.DeviceJdbcRepository.ChangedDevice;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.test.mdm.entity.Status.ACTIVE;
+import static com.test.mdm.entity.Status.BLOCKED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceBulkStatusServiceTest {
+
+    @Mock
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Mock
+    private BulkStatusJobRepository bulkStatusJobRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private DeviceBulkStatusService deviceBulkStatusService;
+
+    @BeforeEach
+    void setUp() {
+        deviceBulkStatusService = new DeviceBulkStatusService(deviceJdbcRepository, bulkStatusJobRepository,
+                transactionTemplate, eventPublisher,
+                new DeviceBulkProperties(1000, 2, Duration.ofHours(1), Duration.ofMinutes(10)), new SyncTaskExecutor());
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void testSubmit_withIds_thenUpdateInChunksAndReportProgress() {
+        when(deviceJdbcRepository.updateStatusByIds(List.of(1L, 2L), BLOCKED))
+                .thenReturn(List.of(new ChangedDevice(1L, 101L), new ChangedDevice(2L, 102L)));
+        when(deviceJdbcRepository.updateStatusByIds(List.of(3L), BLOCKED)).thenReturn(List.of());
+
+        BulkStatusJobDto submitted = deviceBulkStatusService.submit(
+                new BulkStatusRequest(BLOCKED, List.of(1L, 2L, 3L), null, null));
+
+        ArgumentCaptor<BulkStatusJobDto> inserted = ArgumentCaptor.forClass(BulkStatusJobDto.class);
+        InOrder inOrder = inOrder(bulkStatusJobRepository);
+        inOrder.verify(bulkStatusJobRepository).insert(inserted.capture());
+        inOrder.verify(bulkStatusJobRepository).addChunk(submitted.getJobId(), 2);
+        inOrder.verify(bulkStatusJobRepository).addChunk(submitted.getJobId(), 0);
+        inOrder.verify(bulkStatusJobRepository).finish(submitted.getJobId(), BulkJobState.COMPLETED, null);
+        assertThat(inserted.getValue().getState()).isEqualTo(BulkJobState.RUNNING);
+        assertThat(inserted.getValue().getStatus()).isEqualTo(BLOCKED);
+        verify(eventPublisher).publishEvent(new DeviceChangedEvent(ChangeType.STATUS_UPDATED, 2L, 102L));
+    }
+
+    @Test
+    void testSubmit_withFilter_thenPageThroughMatchingIds() {
+        DeviceFilter filter = new DeviceFilter(ACTIVE, "Device", null, null, null);
+        when(deviceJdbcRepository.findIds(filter, 0L, 2)).thenReturn(List.of(4L, 7L));
+        when(deviceJdbcRepository.findIds(filter, 7L, 2)).thenReturn(List.of(9L));
+        when(deviceJdbcRepository.findIds(filter, 9L, 2)).thenReturn(List.of());
+        when(deviceJdbcRepository.updateStatusByIds(any(), eq(BLOCKED)))
+                .thenReturn(List.of(new ChangedDevice(4L, 104L), new ChangedDevice(7L, 107L)),
+                        List.of(new ChangedDevice(9L, 109L)));
+
+        BulkStatusJobDto submitted = deviceBulkStatusService.submit(new BulkStatusRequest(BLOCKED, null, null, filter));
+
+        verify(bulkStatusJobRepository).addChunk(submitted.getJobId(), 2);
+        verify(bulkStatusJobRepository).addChunk(submitted.getJobId(), 1);
+        verify(bulkStatusJobRepository).finish(submitted.getJobId(), BulkJobState.COMPLETED, null);
+        verify(deviceJdbcRepository).updateStatusByIds(List.of(9L), BLOCKED);
+    }
+
+    @Test
+    void testSubmit_withFailingChunk_thenJobFailedWithProgress() {
+        when(deviceJdbcRepository.updateStatusByDeviceIds(List.of(101L), ACTIVE))
+                .thenThrow(new IllegalStateException("connection lost"));
+
+        BulkStatusJobDto submitted = deviceBulkStatusService.submit(
+                new BulkStatusRequest(ACTIVE, null, List.of(101L), null));
+
+        verify(bulkStatusJobRepository, never()).addChunk(any(), anyInt());
+        verify(bulkStatusJobRepository).finish(submitted.getJobId(), BulkJobState.FAILED, "connection lost");
+    }
+
+    @Test
+    void testGetJob_withStoredJob_thenReturnIt() {
+        UUID jobId = UUID.randomUUID();
+        BulkStatusJobDto stored = new BulkStatusJobDto(jobId, BulkJobState.RUNNING, BLOCKED, 2000, 2,
+                LocalDateTime.now(), null, null);
+        when(bulkStatusJobRepository.findById(jobId)).thenReturn(Optional.of(stored));
+
+        assertThat(deviceBulkStatusService.getJob(jobId)).isEqualTo(stored);
+    }
+
+    @Test
+    void testGetJob_withUnknownJobId_thenThrowNotFoundException() {
+        UUID jobId = UUID.randomUUID();
+        when(bulkStatusJobRepository.findById(jobId)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> deviceBulkStatusService.getJob(jobId))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void testExpireJobs_thenFailAbandonedJobsAndDeleteFinishedOnesInBatches() {
+        when(bulkStatusJobRepository.deleteFinishedBefore(any(), eq(1000))).thenReturn(1000, 10);
+
+        deviceBulkStatusService.expireJobs();
+
+        verify(bulkStatusJobRepository).failNotUpdatedSince(any(), eq("Abandoned, no progress for PT10M"));
+        verify(bulkStatusJobRepository, times(2)).deleteFinishedBefore(any(), eq(1000));
+    }
+
+    @Test
+    void testBulkStatusRequest_withEmptyFilter_thenInvalid() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+        assertThat(validator.validate(new BulkStatusRequest(BLOCKED, null, null, new DeviceFilter())))
+                .extracting(ConstraintViolation::getMessage)
+                .containsExactly("One of ids, deviceIds or a filter with at least one condition is required");
+        assertThat(validator.validate(new BulkStatusRequest(BLOCKED, null, null,
+                new DeviceFilter(null, "", "", null, null)))).hasSize(1);
+        assertThat(validator.validate(new BulkStatusRequest(BLOCKED, null, null,
+                new DeviceFilter(ACTIVE, null, null, null, null)))).isEmpty();
+    }
+}
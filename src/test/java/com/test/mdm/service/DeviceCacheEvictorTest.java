@@ -0,0 +1,97 @@
+package com.test.mdm.service;
+
+import com.test.mdm.entity.DeviceEntity;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_DEVICE_ID;
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_ID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceCacheEvictorTest {
+
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager(DEVICES_BY_ID, DEVICES_BY_DEVICE_ID);
+
+    private final LocalDeviceInvalidationBus deviceInvalidationBus = new LocalDeviceInvalidationBus();
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Cache secondLevelCache;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private SessionFactory sessionFactory;
+
+    private DeviceCacheEvictor deviceCacheEvictor;
+
+    @BeforeEach
+    void setUp() {
+        when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+        deviceCacheEvictor = new DeviceCacheEvictor(
+                new DeviceReadCoalescer(cacheManager, transactionManager, new SimpleMeterRegistry()),
+                entityManagerFactory, deviceInvalidationBus);
+        deviceCacheEvictor.subscribe();
+    }
+
+    @Test
+    void testOnDeviceChanged_thenEvictByIdAndByOldAndNewDeviceId() {
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        cacheManager.getCache(DEVICES_BY_ID).put(1L, "device");
+        cacheManager.getCache(DEVICES_BY_ID).put(2L, "other device");
+        cacheManager.getCache(DEVICES_BY_DEVICE_ID).put(101L, "device");
+        cacheManager.getCache(DEVICES_BY_DEVICE_ID).put(102L, "device");
+
+        deviceCacheEvictor.onDeviceChanged(new DeviceChangedEvent(ChangeType.UPDATED, 1L, 102L, 101L));
+
+        assertThat(cacheManager.getCache(DEVICES_BY_ID).get(1L)).isNull();
+        assertThat(cacheManager.getCache(DEVICES_BY_ID).get(2L)).isNotNull();
+        assertThat(cacheManager.getCache(DEVICES_BY_DEVICE_ID).get(101L)).isNull();
+        assertThat(cacheManager.getCache(DEVICES_BY_DEVICE_ID).get(102L)).isNull();
+        verify(secondLevelCache).evict(DeviceEntity.class, 1L);
+        verify(sessionFactory.getCache()).evictNaturalIdData(DeviceEntity.class);
+    }
+
+    @Test
+    void testPublish_withStatusChange_thenEvictSecondLevelEntityButKeepNaturalIds() {
+        cacheManager.getCache(DEVICES_BY_ID).put(1L, "device");
+
+        deviceCacheEvictor.publish(new DeviceChangedEvent(ChangeType.STATUS_UPDATED, 1L, 101L));
+
+        assertThat(cacheManager.getCache(DEVICES_BY_ID).get(1L)).isNull();
+        verify(secondLevelCache).evict(DeviceEntity.class, 1L);
+        verify(entityManagerFactory, never()).unwrap(any());
+    }
+
+    @Test
+    void testOnChangesLost_thenClearAllCaches() {
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        cacheManager.getCache(DEVICES_BY_ID).put(1L, "device");
+        cacheManager.getCache(DEVICES_BY_DEVICE_ID).put(101L, "device");
+
+        deviceCacheEvictor.onChangesLost();
+
+        assertThat(cacheManager.getCache(DEVICES_BY_ID).get(1L)).isNull();
+        assertThat(cacheManager.getCache(DEVICES_BY_DEVICE_ID).get(101L)).isNull();
+        verify(secondLevelCache).evict(DeviceEntity.class);
+        verify(sessionFactory.getCache()).evictNaturalIdData(DeviceEntity.class);
+    }
+}
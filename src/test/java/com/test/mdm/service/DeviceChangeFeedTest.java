@@ -0,0 +1,104 @@
+package com.test.mdm.service;
+
+import com.test.mdm.config.DeviceChangeProperties;
+import com.test.mdm.dto.DeviceChangeDto;
+import com.test.mdm.dto.DeviceChangePageDto;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.exception.InvalidCursorException;
+import com.test.mdm.repository.DeviceChangeRepository;
+import com.test.mdm.util.ChangeOffset;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceChangeFeedTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private DeviceChangeRepository deviceChangeRepository;
+
+    private DeviceChangeFeed deviceChangeFeed;
+
+    @BeforeEach
+    void setUp() {
+        deviceChangeFeed = new DeviceChangeFeed(deviceChangeRepository,
+                new DeviceChangeProperties(Duration.ofMillis(500), 2, Duration.ofSeconds(30), Duration.ofMinutes(30),
+                        1, Duration.ofDays(7)),
+                new SyncTaskExecutor(), meterRegistry);
+    }
+
+    @Test
+    void testGetChanges_withPendingChanges_thenReturnThemWithoutWaiting() {
+        DeviceChangeDto change = createChange("10-5");
+        when(deviceChangeRepository.findAfter(new ChangeOffset(10, 4), 2)).thenReturn(List.of(change));
+
+        DeferredResult<DeviceChangePageDto> result = deviceChangeFeed.getChanges("10-4", null, Duration.ofSeconds(10));
+
+        assertThat(result.getResult()).isEqualTo(new DeviceChangePageDto(List.of(change), "10-5"));
+    }
+
+    @Test
+    void testGetChanges_withoutChanges_thenWaitForPoll() {
+        DeviceChangeDto change = createChange("11-6");
+        when(deviceChangeRepository.findAfter(new ChangeOffset(10, 5), 2))
+                .thenReturn(List.of())
+                .thenReturn(List.of(change));
+
+        DeferredResult<DeviceChangePageDto> result = deviceChangeFeed.getChanges("10-5", 5, Duration.ofSeconds(10));
+        assertThat(result.hasResult()).isFalse();
+
+        deviceChangeFeed.poll();
+
+        assertThat(result.getResult()).isEqualTo(new DeviceChangePageDto(List.of(change), "11-6"));
+        deviceChangeFeed.poll();
+        verify(deviceChangeRepository, times(2)).findAfter(any(), anyInt());
+    }
+
+    @Test
+    void testSubscribe_withMoreChangesThanTheStreamBuffers_thenCatchUpAtTheClientsPace() {
+        when(deviceChangeRepository.findAfter(any(), anyInt())).thenReturn(List.of());
+        when(deviceChangeRepository.findAfter(new ChangeOffset(10, 4), 1)).thenReturn(List.of(createChange("10-5")));
+        when(deviceChangeRepository.findAfter(new ChangeOffset(10, 5), 1)).thenReturn(List.of(createChange("10-6")));
+        when(deviceChangeRepository.findAfter(new ChangeOffset(10, 6), 2))
+                .thenReturn(List.of(createChange("10-7"), createChange("10-8")));
+        when(deviceChangeRepository.findAfter(new ChangeOffset(10, 7), 1)).thenReturn(List.of(createChange("10-8")));
+
+        deviceChangeFeed.subscribe("10-4");
+        deviceChangeFeed.poll();
+
+        InOrder reads = inOrder(deviceChangeRepository);
+        reads.verify(deviceChangeRepository).findAfter(new ChangeOffset(10, 4), 1);
+        reads.verify(deviceChangeRepository).findAfter(new ChangeOffset(10, 5), 1);
+        reads.verify(deviceChangeRepository).findAfter(new ChangeOffset(10, 6), 1);
+        reads.verify(deviceChangeRepository).findAfter(new ChangeOffset(10, 6), 2);
+        reads.verify(deviceChangeRepository).findAfter(new ChangeOffset(10, 7), 1);
+        reads.verify(deviceChangeRepository).findAfter(new ChangeOffset(10, 8), 1);
+        assertThat(meterRegistry.get("mdm.devices.changes.subscribers").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void testGetChanges_withInvalidOffset_thenThrowInvalidCursorException() {
+        assertThatThrownBy(() -> deviceChangeFeed.getChanges("10", null, Duration.ZERO))
+                .isInstanceOf(InvalidCursorException.class);
+        verifyNoInteractions(deviceChangeRepository);
+    }
+
+    private DeviceChangeDto createChange(String offset) {
+        return new DeviceChangeDto(offset, ChangeType.STATUS_UPDATED, 1L, 101L, null, null);
+    }
+}
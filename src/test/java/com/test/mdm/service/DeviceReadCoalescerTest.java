@@ -0,0 +1,144 @@
+package com.test.mdm.service;
+
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.entity.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_DEVICE_ID;
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_ID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceReadCoalescerTest {
+
+    private static final DeviceDto DEVICE = new DeviceDto(1L, 101L, "Device", Status.ACTIVE, null, 0L);
+
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager(DEVICES_BY_ID, DEVICES_BY_DEVICE_ID);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DeviceReadCoalescer deviceReadCoalescer;
+
+    @BeforeEach
+    void setUp() {
+        deviceReadCoalescer = new DeviceReadCoalescer(cacheManager, transactionManager, meterRegistry);
+    }
+
+    @Test
+    void testFind_withConcurrentReadersOfSameKey_thenLoadOnceAndCache() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<DeviceDto> leader = CompletableFuture.supplyAsync(
+                () -> deviceReadCoalescer.find(DEVICES_BY_ID, 1L, () -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    return DEVICE;
+                }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<DeviceDto> follower = CompletableFuture.supplyAsync(
+                () -> deviceReadCoalescer.find(DEVICES_BY_ID, 1L, () -> {
+                    loads.incrementAndGet();
+                    return DEVICE;
+                }));
+        while (coalesced("id") == 0 && !follower.isDone()) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(DEVICE);
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(DEVICE);
+        assertThat(loads).hasValue(1);
+        assertThat(coalesced("id")).isEqualTo(1);
+        assertThat(cacheManager.getCache(DEVICES_BY_ID).get(1L, DeviceDto.class)).isEqualTo(DEVICE);
+    }
+
+    @Test
+    void testEvict_duringLoad_thenDoNotCacheLoadedDeviceAndLoadAgain() {
+        DeviceDto loaded = deviceReadCoalescer.find(DEVICES_BY_ID, 1L, () -> {
+            deviceReadCoalescer.evict(DEVICES_BY_ID, 1L);
+            return DEVICE;
+        });
+        DeviceDto changed = new DeviceDto(1L, 101L, "Device", Status.BLOCKED, null, 1L);
+
+        assertThat(loaded).isEqualTo(DEVICE);
+        assertThat(cacheManager.getCache(DEVICES_BY_ID).get(1L)).isNull();
+        assertThat(deviceReadCoalescer.find(DEVICES_BY_ID, 1L, () -> changed)).isEqualTo(changed);
+    }
+
+    @Test
+    void testFindAsync_withPendingLoad_thenShareItAndDoNotCacheWhenEvicted() {
+        CompletableFuture<DeviceDto> loading = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<DeviceDto> leader = deviceReadCoalescer.findAsync(DEVICES_BY_ID, 1L, () -> {
+            loads.incrementAndGet();
+            return loading;
+        });
+        CompletableFuture<DeviceDto> follower = deviceReadCoalescer.findAsync(DEVICES_BY_ID, 1L, () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(DEVICE);
+        });
+        follower.cancel(false);
+        deviceReadCoalescer.evict(DEVICES_BY_ID, 1L);
+        loading.complete(DEVICE);
+
+        assertThat(leader).isCompletedWithValue(DEVICE);
+        assertThat(follower).isCancelled();
+        assertThat(loads).hasValue(1);
+        assertThat(coalesced("id")).isEqualTo(1);
+        assertThat(cacheManager.getCache(DEVICES_BY_ID).get(1L)).isNull();
+    }
+
+    @Test
+    void testFindAll_thenLoadMissesOnceAndSkipUnknownKeys() {
+        cacheManager.getCache(DEVICES_BY_DEVICE_ID).put(102L, new DeviceDto(2L, 102L, "Other", Status.ACTIVE, null, 0L));
+        AtomicInteger loads = new AtomicInteger();
+
+        Map<Long, DeviceDto> devices = deviceReadCoalescer.findAll(DEVICES_BY_DEVICE_ID, List.of(101L, 102L, 103L),
+                DeviceDto::getDeviceId, keys -> {
+                    loads.incrementAndGet();
+                    assertThat(keys).containsExactly(101L, 103L);
+                    return List.of(DEVICE);
+                });
+
+        assertThat(devices).containsOnlyKeys(101L, 102L);
+        assertThat(loads).hasValue(1);
+        assertThat(cacheManager.getCache(DEVICES_BY_DEVICE_ID).get(101L, DeviceDto.class)).isEqualTo(DEVICE);
+        assertThat(cacheManager.getCache(DEVICES_BY_DEVICE_ID).get(103L)).isNull();
+    }
+
+    private double coalesced(String lookup) {
+        return meterRegistry.get("mdm.devices.reads.coalesced").tag("lookup", lookup).functionCounter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,21 +1,49 @@
 package com.test.mdm.service;
 
+import com.test.mdm.config.DeviceArchiveProperties;
+import com.test.mdm.config.DeviceProperties;
+import com.test.mdm.dto.DeviceBatchDto;
 import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.DevicePageDto;
+import com.test.mdm.dto.request.DeviceBatchRequest;
+import com.test.mdm.dto.request.DeviceFilter;
+import com.test.mdm.dto.request.DeviceSortField;
 import com.test.mdm.dto.request.DeviceRequest;
 import com.test.mdm.dto.request.UpdateDeviceStatusRequest;
 import com.test.mdm.entity.DeviceEntity;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.exception.InvalidCursorException;
 import com.test.mdm.exception.NotFoundException;
+import com.test.mdm.exception.PreconditionFailedException;
+import com.test.mdm.repository.DeviceJdbcRepository;
 import com.test.mdm.repository.DeviceRepository;
+import com.test.mdm.util.DeviceCursor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_DEVICE_ID;
+import static com.test.mdm.config.CacheConfig.DEVICES_BY_ID;
 import static com.test.mdm.entity.Status.ACTIVE;
+import static com.test.mdm.util.Constant.DEVICE_PRECONDITION_FAILED;
 import static com.test.mdm.util.Constant.DEVICE_WITH_DEVICE_ID_NOT_FOUND;
 import static com.test.mdm.util.Constant.DEVICE_WITH_ID_NOT_FOUND;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -28,23 +56,110 @@ class DeviceServiceTest {
     @Mock
     private DeviceRepository deviceRepository;
 
+    @Mock
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private DeviceProperties deviceProperties = new DeviceProperties(new DeviceProperties.Page(2, 10));
+
+    @Spy
+    private DeviceArchiveProperties deviceArchiveProperties =
+            new DeviceArchiveProperties(DeviceArchiveProperties.DeleteMode.DELETE, 2, null);
+
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager(DEVICES_BY_ID, DEVICES_BY_DEVICE_ID);
+
+    @Spy
+    private DeviceReadCoalescer deviceReadCoalescer = new DeviceReadCoalescer(cacheManager,
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+
     @InjectMocks
     private DeviceService deviceService;
 
     @Test
-    void testGetDevices_thenReturnDevicesDtoList() {
-        DeviceEntity testDevice = createTestDeviceEntity();
+    void testStreamDevices_thenPassDevicesDtoToConsumer() {
+        DeviceDto testDevice = createTestDeviceEntity().toDto();
 
-        when(deviceRepository.findAll()).thenReturn(List.of(testDevice));
+        when(deviceRepository.streamAllDtos()).thenReturn(Stream.of(testDevice));
 
-        List<DeviceDto> result = deviceService.getDevices();
+        List<DeviceDto> result = new ArrayList<>();
+        deviceService.streamDevices(result::add);
 
         assertThat(result)
-                .isNotNull()
-                .isNotEmpty()
                 .hasSize(1)
                 .first()
-                .isEqualTo(testDevice.toDto());
+                .isEqualTo(testDevice);
+        assertThat(meterRegistry.get("mdm.devices.rows").tag("operation", "getDevices").summary().totalAmount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testGetDevicesPage_withMoreDevices_thenReturnPageWithNextCursor() {
+        List<DeviceDto> devices = List.of(createTestDeviceEntity(1L).toDto(), createTestDeviceEntity(2L).toDto(),
+                createTestDeviceEntity(3L).toDto());
+
+        when(deviceRepository.findDtosByIdGreaterThan(0L, Limit.of(3))).thenReturn(devices);
+
+        DevicePageDto result = deviceService.getDevicesPage(null, null);
+
+        assertThat(result.getItems())
+                .extracting(DeviceDto::getId)
+                .containsExactly(1L, 2L);
+        assertThat(result.getNextCursor()).isEqualTo(DeviceCursor.encode(2L));
+    }
+
+    @Test
+    void testGetDevicesPage_withLastPage_thenReturnPageWithoutCursor() {
+        String cursor = DeviceCursor.encode(2L);
+
+        when(deviceRepository.findDtosByIdGreaterThan(2L, Limit.of(11)))
+                .thenReturn(List.of(createTestDeviceEntity(3L).toDto()));
+
+        DevicePageDto result = deviceService.getDevicesPage(cursor, 100);
+
+        assertThat(result.getItems())
+                .extracting(DeviceDto::getId)
+                .containsExactly(3L);
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void testGetDevicesPage_withInvalidCursor_thenThrowInvalidCursorException() {
+        assertThatThrownBy(() -> deviceService.getDevicesPage("not-a-cursor", null))
+                .isInstanceOf(InvalidCursorException.class);
+        verifyNoInteractions(deviceRepository);
+    }
+
+    @Test
+    void testSearchDevices_withMoreDevices_thenReturnPageWithKeysetCursor() {
+        DeviceFilter filter = new DeviceFilter(ACTIVE, null, "test", null, null);
+        DeviceDto first = new DeviceDto(5L, 105L, "Test", ACTIVE, LocalDateTime.of(2025, 3, 14, 12, 0), 0L);
+        DeviceDto second = new DeviceDto(3L, 103L, "Test", ACTIVE, LocalDateTime.of(2025, 3, 14, 11, 0), 0L);
+        DeviceDto third = new DeviceDto(9L, 109L, "Test", ACTIVE, LocalDateTime.of(2025, 3, 14, 10, 0), 0L);
+
+        when(deviceJdbcRepository.search(filter, DeviceSortField.CREATED_AT, Sort.Direction.DESC, null, 3))
+                .thenReturn(List.of(first, second, third));
+
+        DevicePageDto result = deviceService.searchDevices(filter, DeviceSortField.CREATED_AT, Sort.Direction.DESC, null, 2);
+
+        assertThat(result.getItems()).containsExactly(first, second);
+        assertThat(DeviceCursor.decode(result.getNextCursor(), DeviceSortField.CREATED_AT))
+                .isEqualTo(new DeviceCursor.Position(3L, LocalDateTime.of(2025, 3, 14, 11, 0)));
+    }
+
+    @Test
+    void testSearchDevices_withCursorOfAnotherSort_thenThrowInvalidCursorException() {
+        String cursor = DeviceCursor.encode(DeviceSortField.DEVICE_NAME, new DeviceDto(1L, 101L, "Test", ACTIVE, null, 0L));
+
+        assertThatThrownBy(() -> deviceService.searchDevices(new DeviceFilter(), DeviceSortField.CREATED_AT,
+                Sort.Direction.ASC, cursor, null))
+                .isInstanceOf(InvalidCursorException.class);
+        verifyNoInteractions(deviceJdbcRepository);
     }
 
     @Test
@@ -73,6 +188,38 @@ class DeviceServiceTest {
         verify(deviceRepository, times(1)).findByDeviceId(testDevice.getDeviceId());
     }
 
+    @Test
+    void testGetDevicesBatch_thenLoadCacheMissesWithOneQueryAndReportMissingKeys() {
+        DeviceDto cached = createTestDeviceEntity(1L).toDto();
+        DeviceDto loaded = new DeviceDto(2L, 102L, "Other Device", ACTIVE, null, 0L);
+        cacheManager.getCache(DEVICES_BY_ID).put(1L, cached);
+
+        when(deviceJdbcRepository.findByIds(List.of(2L, 3L))).thenReturn(List.of(loaded));
+        when(deviceJdbcRepository.findByDeviceIds(List.of(102L, 103L))).thenReturn(List.of(loaded));
+
+        DeviceBatchDto result = deviceService.getDevicesBatch(
+                new DeviceBatchRequest(List.of(1L, 2L, 3L, 2L), List.of(102L, 103L)));
+
+        assertThat(result.getItems()).containsExactly(cached, loaded);
+        assertThat(result.getMissingIds()).containsExactly(3L);
+        assertThat(result.getMissingDeviceIds()).containsExactly(103L);
+        assertThat(cacheManager.getCache(DEVICES_BY_ID).get(2L, DeviceDto.class)).isEqualTo(loaded);
+        assertThat(cacheManager.getCache(DEVICES_BY_DEVICE_ID).get(102L, DeviceDto.class)).isEqualTo(loaded);
+    }
+
+    @Test
+    void testGetDevicesBatch_withAllCached_thenDoNotQuery() {
+        DeviceDto cached = createTestDeviceEntity(1L).toDto();
+        cacheManager.getCache(DEVICES_BY_DEVICE_ID).put(cached.getDeviceId(), cached);
+
+        DeviceBatchDto result = deviceService.getDevicesBatch(
+                new DeviceBatchRequest(null, List.of(cached.getDeviceId())));
+
+        assertThat(result.getItems()).containsExactly(cached);
+        assertThat(result.getMissingDeviceIds()).isEmpty();
+        verifyNoInteractions(deviceJdbcRepository);
+    }
+
     @Test
     void testGetDeviceById_withValidId_thenReturnDeviceDto() {
         DeviceEntity testDevice = createTestDeviceEntity();
@@ -128,15 +275,17 @@ class DeviceServiceTest {
         deviceRequest.setStatus(String.valueOf(testDevice.getStatus()));
 
         when(deviceRepository.findById(testDevice.getDeviceId())).thenReturn(Optional.of(testDevice));
-        when(deviceRepository.save(testDevice)).thenReturn(testDevice);
+        when(deviceRepository.saveAndFlush(testDevice)).thenReturn(testDevice);
 
-        DeviceDto result = deviceService.updateDevice(testDevice.getDeviceId(), deviceRequest);
+        DeviceDto result = deviceService.updateDevice(testDevice.getDeviceId(), deviceRequest, null);
 
         assertThat(result)
                 .isNotNull()
                 .isEqualTo(testDevice.toDto());
         verify(deviceRepository, times(1)).findById(testDevice.getDeviceId());
-        verify(deviceRepository, times(1)).save(testDevice);
+        verify(deviceRepository, times(1)).saveAndFlush(testDevice);
+        verify(eventPublisher, times(1)).publishEvent(
+                new DeviceChangedEvent(ChangeType.UPDATED, null, testDevice.getDeviceId(), testDevice.getDeviceId()));
     }
 
     @Test
@@ -146,65 +295,136 @@ class DeviceServiceTest {
 
         when(deviceRepository.findById(id)).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> deviceService.updateDevice(id, deviceRequest))
+        assertThatThrownBy(() -> deviceService.updateDevice(id, deviceRequest, null))
                 .isInstanceOf(NotFoundException.class)
                 .hasMessage(String.format(DEVICE_WITH_ID_NOT_FOUND, id));
         verify(deviceRepository, times(1)).findById(id);
     }
 
+    @Test
+    void testUpdateDevice_withStaleVersion_thenThrowPreconditionFailedException() {
+        DeviceEntity testDevice = createTestDeviceEntity(1L);
+        testDevice.setVersion(3L);
+
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(testDevice));
+
+        assertThatThrownBy(() -> deviceService.updateDevice(1L, new DeviceRequest(1L, "Test", "ACTIVE"), 2L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage(String.format(DEVICE_PRECONDITION_FAILED, 1L, 2L));
+        verify(deviceRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
     @Test
     void testUpdateDeviceStatus_withValidId_thenReturnDeviceDto() {
-        DeviceEntity testDevice = createTestDeviceEntity();
+        DeviceEntity testDevice = createTestDeviceEntity(1L);
 
         UpdateDeviceStatusRequest updateDeviceStatusRequest = new UpdateDeviceStatusRequest();
         updateDeviceStatusRequest.setStatus(testDevice.getStatus().name());
 
-        when(deviceRepository.findById(testDevice.getDeviceId())).thenReturn(Optional.of(testDevice));
-        when(deviceRepository.save(testDevice)).thenReturn(testDevice);
+        when(deviceRepository.updateStatusById(testDevice.getId(), testDevice.getStatus().name()))
+                .thenReturn(Optional.of(testDevice));
 
-        DeviceDto result = deviceService.updateDeviceStatus(testDevice.getDeviceId(), updateDeviceStatusRequest);
+        DeviceDto result = deviceService.updateDeviceStatus(testDevice.getId(), updateDeviceStatusRequest, null);
 
         assertThat(result)
                 .isNotNull()
                 .isEqualTo(testDevice.toDto());
-        verify(deviceRepository, times(1)).findById(testDevice.getDeviceId());
-        verify(deviceRepository, times(1)).save(testDevice);
+        verify(deviceRepository, times(1)).updateStatusById(testDevice.getId(), testDevice.getStatus().name());
+        verify(deviceRepository, never()).findById(any());
+        verify(deviceRepository, never()).save(any());
+        verify(eventPublisher, times(1)).publishEvent(
+                new DeviceChangedEvent(ChangeType.STATUS_UPDATED, testDevice.getId(), testDevice.getDeviceId()));
     }
 
     @Test
     void testUpdateDeviceStatus_withInvalidId_thenThrowNotFoundException() {
         Long id = 1L;
-        UpdateDeviceStatusRequest updateDeviceStatusRequest = new UpdateDeviceStatusRequest();
+        UpdateDeviceStatusRequest updateDeviceStatusRequest = new UpdateDeviceStatusRequest(ACTIVE.name());
 
-        when(deviceRepository.findById(id)).thenReturn(Optional.empty());
+        when(deviceRepository.updateStatusById(id, ACTIVE.name())).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> deviceService.updateDeviceStatus(id, updateDeviceStatusRequest))
+        assertThatThrownBy(() -> deviceService.updateDeviceStatus(id, updateDeviceStatusRequest, null))
                 .isInstanceOf(NotFoundException.class)
                 .hasMessage(String.format(DEVICE_WITH_ID_NOT_FOUND, id));
-        verify(deviceRepository, times(1)).findById(id);
+        verify(deviceRepository, times(1)).updateStatusById(id, ACTIVE.name());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testUpdateDeviceStatus_withStaleVersion_thenThrowPreconditionFailedException() {
+        Long id = 1L;
+        UpdateDeviceStatusRequest updateDeviceStatusRequest = new UpdateDeviceStatusRequest(ACTIVE.name());
+
+        when(deviceRepository.updateStatusByIdAndVersion(id, ACTIVE.name(), 2L)).thenReturn(Optional.empty());
+        when(deviceRepository.existsById(id)).thenReturn(true);
+
+        assertThatThrownBy(() -> deviceService.updateDeviceStatus(id, updateDeviceStatusRequest, 2L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage(String.format(DEVICE_PRECONDITION_FAILED, id, 2L));
+        verify(deviceRepository, never()).updateStatusById(any(), any());
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
     void testDeleteDevice_withValidId_thenNoExceptionThrown() {
-        DeviceEntity testDevice = createTestDeviceEntity();
+        DeviceEntity testDevice = createTestDeviceEntity(1L);
 
-        when(deviceRepository.findById(testDevice.getDeviceId())).thenReturn(Optional.of(testDevice));
+        when(deviceRepository.deleteByIdReturningDeviceId(testDevice.getId()))
+                .thenReturn(Optional.of(testDevice.getDeviceId()));
 
-        deviceService.deleteDevice(testDevice.getDeviceId());
+        deviceService.deleteDevice(testDevice.getId(), null);
 
-        verify(deviceRepository, times(1)).findById(testDevice.getDeviceId());
+        verify(deviceRepository, times(1)).deleteByIdReturningDeviceId(testDevice.getId());
+        verify(deviceRepository, never()).findById(any());
+        verify(eventPublisher, times(1)).publishEvent(
+                new DeviceChangedEvent(ChangeType.DELETED, testDevice.getId(), testDevice.getDeviceId()));
+    }
+
+    @Test
+    void testDeleteDevice_inArchiveMode_thenArchiveInsteadOfDelete() {
+        DeviceEntity testDevice = createTestDeviceEntity(1L);
+
+        when(deviceArchiveProperties.deleteMode()).thenReturn(DeviceArchiveProperties.DeleteMode.ARCHIVE);
+        when(deviceRepository.archiveByIdAndVersionReturningDeviceId(testDevice.getId(), 0L))
+                .thenReturn(Optional.of(testDevice.getDeviceId()));
+
+        deviceService.deleteDevice(testDevice.getId(), 0L);
+
+        verify(deviceRepository, never()).deleteByIdAndVersionReturningDeviceId(any(), any());
+        verify(eventPublisher, times(1)).publishEvent(
+                new DeviceChangedEvent(ChangeType.DELETED, testDevice.getId(), testDevice.getDeviceId()));
     }
 
     @Test
     void testDeleteDevice_withInvalidId_thenThrowNotFoundException() {
         Long id = 1L;
 
-        when(deviceRepository.findById(id)).thenReturn(Optional.empty());
+        when(deviceRepository.deleteByIdReturningDeviceId(id)).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> deviceService.deleteDevice(id))
+        assertThatThrownBy(() -> deviceService.deleteDevice(id, null))
                 .isInstanceOf(NotFoundException.class)
                 .hasMessage(String.format(DEVICE_WITH_ID_NOT_FOUND, id));
-        verify(deviceRepository, times(1)).findById(id);
+        verify(deviceRepository, times(1)).deleteByIdReturningDeviceId(id);
+    }
+
+    @Test
+    void testDeleteDevice_withVersionOfMissingDevice_thenThrowNotFoundException() {
+        Long id = 1L;
+
+        when(deviceRepository.deleteByIdAndVersionReturningDeviceId(id, 2L)).thenReturn(Optional.empty());
+        when(deviceRepository.existsById(id)).thenReturn(false);
+
+        assertThatThrownBy(() -> deviceService.deleteDevice(id, 2L))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage(String.format(DEVICE_WITH_ID_NOT_FOUND, id));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private DeviceEntity createTestDeviceEntity(Long id) {
+        DeviceEntity testDevice = createTestDeviceEntity();
+        testDevice.setId(id);
+        return testDevice;
     }
 
     private DeviceEntity createTestDeviceEntity() {
@@ -0,0 +1,228 @@
+package com.test.mdm.service;
+
+import com.test.mdm.config.DeviceStatusCoalescingProperties;
+import com.test.mdm.config.DeviceStatusCoalescingProperties.Durability;
+import com.test.mdm.dto.DeviceDto;
+import com.test.mdm.dto.request.UpdateDeviceStatusRequest;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.exception.ServiceOverloadedException;
+import com.test.mdm.repository.DeviceJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static com.test.mdm.entity.Status.ACTIVE;
+import static com.test.mdm.entity.Status.BLOCKED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceStatusCoalescerTest {
+
+    @Mock
+    private DeviceService deviceService;
+
+    @Mock
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DeviceStatusCoalescer deviceStatusCoalescer;
+
+    @AfterEach
+    void tearDown() {
+        deviceStatusCoalescer.stop();
+    }
+
+    @Test
+    void testUpdateDeviceStatus_withRepeatedUpdates_thenWriteLastStatusOnce() {
+        start(100);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(deviceJdbcRepository.updateStatuses(Map.of(1L, BLOCKED)))
+                .thenReturn(List.of(new DeviceDto(1L, 101L, "Device", BLOCKED, null, 4L)));
+
+        assertThat(deviceStatusCoalescer.updateDeviceStatus(1L, new UpdateDeviceStatusRequest("BLOCKED"))).isNull();
+        assertThat(deviceStatusCoalescer.updateDeviceStatus(1L, new UpdateDeviceStatusRequest("ACTIVE"))).isNull();
+        assertThat(deviceStatusCoalescer.updateDeviceStatus(1L, new UpdateDeviceStatusRequest("BLOCKED"))).isNull();
+        deviceStatusCoalescer.flush();
+
+        verify(deviceJdbcRepository, times(1)).updateStatuses(any());
+        verify(eventPublisher, times(1)).publishEvent(new DeviceChangedEvent(ChangeType.STATUS_UPDATED, 1L, 101L));
+        assertThat(meterRegistry.get("mdm.devices.status.coalescing.coalesced").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("mdm.devices.status.coalescing.lag").timer().count()).isEqualTo(1);
+        verifyNoInteractions(deviceService);
+    }
+
+    @Test
+    void testUpdateDeviceStatus_withFullBuffer_thenUpdateDirectly() {
+        start(1);
+        UpdateDeviceStatusRequest request = new UpdateDeviceStatusRequest("ACTIVE");
+
+        deviceStatusCoalescer.updateDeviceStatus(1L, new UpdateDeviceStatusRequest("BLOCKED"));
+        deviceStatusCoalescer.updateDeviceStatus(2L, request);
+
+        verify(deviceService, times(1)).updateDeviceStatus(2L, request, null);
+        assertThat(meterRegistry.get("mdm.devices.status.coalescing.overflow").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testFlush_withFailure_thenBufferStatusesAgain() {
+        start(100);
+        when(transactionTemplate.execute(any()))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        deviceStatusCoalescer.updateDeviceStatus(1L, new UpdateDeviceStatusRequest("ACTIVE"));
+        deviceStatusCoalescer.flush();
+        deviceStatusCoalescer.flush();
+
+        verify(deviceJdbcRepository, times(1)).updateStatuses(Map.of(1L, ACTIVE));
+    }
+
+    @Test
+    void testFlush_withFailure_thenWaitForBackoffBeforeWritingAgain() {
+        start(Durability.ASYNC, 100, Duration.ofHours(1));
+        when(transactionTemplate.execute(any())).thenThrow(new QueryTimeoutException("timeout"));
+
+        deviceStatusCoalescer.updateDeviceStatus(1L, new UpdateDeviceStatusRequest("ACTIVE"));
+        deviceStatusCoalescer.flush();
+        deviceStatusCoalescer.flush();
+
+        verify(transactionTemplate, times(1)).execute(any());
+        assertThat(meterRegistry.get("mdm.devices.status.coalescing.pending").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void testFlush_withRepeatedFailures_thenDropStatusesAfterLastAttempt() {
+        start(100);
+        when(transactionTemplate.execute(any())).thenThrow(new QueryTimeoutException("timeout"));
+
+        deviceStatusCoalescer.updateDeviceStatus(1L, new UpdateDeviceStatusRequest("ACTIVE"));
+        deviceStatusCoalescer.flush();
+        deviceStatusCoalescer.flush();
+        deviceStatusCoalescer.flush();
+
+        verify(transactionTemplate, times(2)).execute(any());
+        assertThat(meterRegistry.get("mdm.devices.status.coalescing.pending").gauge().value()).isZero();
+        assertThat(meterRegistry.get("mdm.devices.status.coalescing.dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testUpdateDeviceStatus_withSyncDurabilityAndNoFlush_thenThrowServiceOverloadedException() {
+        start(Durability.SYNC, 100, Duration.ZERO);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        assertThatThrownBy(() -> deviceStatusCoalescer.updateDeviceStatus(1L, new UpdateDeviceStatusRequest("BLOCKED")))
+                .isInstanceOf(ServiceOverloadedException.class);
+        deviceStatusCoalescer.flush();
+
+        verify(deviceJdbcRepository, times(1)).updateStatuses(Map.of(1L, BLOCKED));
+    }
+
+    @Test
+    void testUpdateDeviceStatus_whenStoppingWithBufferedStatus_thenDoNotWriteItAfterTheDirectOne() throws Exception {
+        start(new DeviceStatusCoalescingProperties(true, Durability.ASYNC, Duration.ofHours(1), 1, 100,
+                Duration.ofSeconds(10), Duration.ofSeconds(10), Duration.ZERO, 2));
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch failing = new CountDownLatch(1);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            flushing.countDown();
+            failing.await();
+            return invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+        });
+        UpdateDeviceStatusRequest request = new UpdateDeviceStatusRequest("ACTIVE");
+
+        // the writer is busy with device 1 while device 2 is still buffered
+        deviceStatusCoalescer.updateDeviceStatus(1L, new UpdateDeviceStatusRequest("BLOCKED"));
+        flushing.await();
+        deviceStatusCoalescer.updateDeviceStatus(2L, new UpdateDeviceStatusRequest("BLOCKED"));
+        Thread stop = new Thread(deviceStatusCoalescer::stop);
+        stop.start();
+        while (deviceStatusCoalescer.isRunning()) {
+            Thread.onSpinWait();
+        }
+        deviceStatusCoalescer.updateDeviceStatus(2L, request);
+        failing.countDown();
+        stop.join();
+
+        verify(deviceService, times(1)).updateDeviceStatus(2L, request, null);
+        verify(deviceJdbcRepository, times(1)).updateStatuses(Map.of(1L, BLOCKED));
+        verify(deviceJdbcRepository, never()).updateStatuses(Map.of(2L, BLOCKED));
+    }
+
+    @Test
+    void testUpdateDeviceStatus_withFullBufferWhileFailingBatch_thenDoNotWriteEarlierStatusAgain() throws Exception {
+        start(new DeviceStatusCoalescingProperties(true, Durability.ASYNC, Duration.ofHours(1), 1000, 1,
+                Duration.ofSeconds(10), Duration.ofSeconds(10), Duration.ZERO, 2));
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch failing = new CountDownLatch(1);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> {
+                    flushing.countDown();
+                    failing.await();
+                    throw new QueryTimeoutException("timeout");
+                })
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        UpdateDeviceStatusRequest request = new UpdateDeviceStatusRequest("ACTIVE");
+
+        deviceStatusCoalescer.updateDeviceStatus(1L, new UpdateDeviceStatusRequest("BLOCKED"));
+        Thread flush = new Thread(deviceStatusCoalescer::flush);
+        flush.start();
+        flushing.await();
+        // device 2 fills the buffer, the status of device 1 is in the failing batch
+        deviceStatusCoalescer.updateDeviceStatus(2L, new UpdateDeviceStatusRequest("BLOCKED"));
+        Thread update = new Thread(() -> deviceStatusCoalescer.updateDeviceStatus(1L, request));
+        update.start();
+        while (update.getState() != Thread.State.TIMED_WAITING && update.isAlive()) {
+            Thread.onSpinWait();
+        }
+        verify(deviceService, never()).updateDeviceStatus(any(), any(), any());
+        failing.countDown();
+        flush.join();
+        update.join();
+        deviceStatusCoalescer.flush();
+
+        verify(deviceService, times(1)).updateDeviceStatus(1L, request, null);
+        verify(deviceJdbcRepository, times(1)).updateStatuses(Map.of(2L, BLOCKED));
+        verify(deviceJdbcRepository, never()).updateStatuses(Map.of(1L, BLOCKED));
+    }
+
+    private void start(int maxPending) {
+        start(Durability.ASYNC, maxPending, Duration.ZERO);
+    }
+
+    private void start(Durability durability, int maxPending, Duration retryBackoff) {
+        // the writer thread waits for a full batch or an hour, batches are flushed by the tests
+        start(new DeviceStatusCoalescingProperties(true, durability, Duration.ofHours(1), 1000, maxPending,
+                Duration.ofMillis(50), Duration.ofSeconds(10), retryBackoff, 2));
+    }
+
+    private void start(DeviceStatusCoalescingProperties properties) {
+        deviceStatusCoalescer = new DeviceStatusCoalescer(deviceService, deviceJdbcRepository, transactionTemplate,
+                eventPublisher, properties, meterRegistry);
+        deviceStatusCoalescer.start();
+    }
+}
@@ -0,0 +1,151 @@
+package com.test.mdm.service;
+
+import com.test.mdm.dto.DeviceStatusDto;
+import com.test.mdm.entity.Status;
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import com.test.mdm.exception.NotFoundException;
+import com.test.mdm.repository.DeviceJdbcRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceStatusIndexTest {
+
+    private static final int DEVICES = 10_000;
+
+    private final LocalDeviceInvalidationBus deviceInvalidationBus = new LocalDeviceInvalidationBus();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private DeviceJdbcRepository deviceJdbcRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DeviceStatusIndex deviceStatusIndex;
+
+    @BeforeEach
+    void setUp() {
+        deviceStatusIndex = new DeviceStatusIndex(deviceJdbcRepository, deviceInvalidationBus, Runnable::run,
+                transactionManager, meterRegistry);
+        deviceStatusIndex.subscribe();
+    }
+
+    @Test
+    void testLoadAll_thenAnswerFromMemoryAndReportMemoryPerMillionDevices() {
+        streamDevices();
+
+        deviceStatusIndex.requestLoad();
+
+        assertThat(deviceStatusIndex.getDeviceStatus(101L)).isEqualTo(new DeviceStatusDto(101L, Status.ACTIVE));
+        assertThat(deviceStatusIndex.getDeviceStatus(102L)).isEqualTo(new DeviceStatusDto(102L, Status.BLOCKED));
+        assertThatThrownBy(() -> deviceStatusIndex.getDeviceStatus(100L))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("Device with deviceId 100 not found");
+        verify(deviceJdbcRepository, never()).findStatusByDeviceId(anyLong());
+        assertThat(meterRegistry.get("mdm.devices.status.index.devices").gauge().value()).isEqualTo(DEVICES);
+        // 9 bytes per slot, at most three quarters of the slots are used
+        assertThat(meterRegistry.get("mdm.devices.status.index.memory.per.million").gauge().value())
+                .isBetween(9e6, 24e6);
+    }
+
+    @Test
+    void testOnDeviceChanged_thenLoadStatusOnceOnNextCheck() {
+        streamDevices();
+        deviceStatusIndex.loadAll();
+        when(deviceJdbcRepository.findStatusByDeviceId(101L)).thenReturn(Optional.of(Status.BLOCKED));
+
+        deviceStatusIndex.onDeviceChanged(new DeviceChangedEvent(ChangeType.STATUS_UPDATED, 1L, 101L));
+
+        assertThat(deviceStatusIndex.isIndexed(101L)).isFalse();
+        assertThat(deviceStatusIndex.getIndexedStatus(101L)).isNull();
+        assertThat(deviceStatusIndex.getDeviceStatus(101L).getStatus()).isEqualTo(Status.BLOCKED);
+        assertThat(deviceStatusIndex.getDeviceStatus(101L).getStatus()).isEqualTo(Status.BLOCKED);
+        assertThat(deviceStatusIndex.isIndexed(101L)).isTrue();
+        assertThat(deviceStatusIndex.getIndexedStatus(101L).getStatus()).isEqualTo(Status.BLOCKED);
+        verify(deviceJdbcRepository, times(1)).findStatusByDeviceId(101L);
+    }
+
+    @Test
+    void testOnRemoteChanges_withDeletedAndRenumberedDevices_thenRemoveThemAndKeepTheOthers() {
+        streamDevices();
+        deviceStatusIndex.loadAll();
+        when(deviceJdbcRepository.findStatusByDeviceId(anyLong())).thenReturn(Optional.empty());
+        List<DeviceChangedEvent> deletions = LongStream.range(101, 101 + DEVICES).filter(deviceId -> deviceId % 3 == 0)
+                .mapToObj(deviceId -> new DeviceChangedEvent(ChangeType.DELETED, deviceId - 100, deviceId))
+                .toList();
+        DeviceChangedEvent renumbered = new DeviceChangedEvent(ChangeType.UPDATED, 1L, 100L, 101L);
+
+        deviceStatusIndex.onRemoteChanges(Stream.concat(deletions.stream(), Stream.of(renumbered)).toList());
+
+        deletions.forEach(deletion -> assertThatThrownBy(() -> deviceStatusIndex.getDeviceStatus(deletion.deviceId()))
+                .isInstanceOf(NotFoundException.class));
+        assertThatThrownBy(() -> deviceStatusIndex.getDeviceStatus(101L)).isInstanceOf(NotFoundException.class);
+        verify(deviceJdbcRepository, times(deletions.size() + 1)).findStatusByDeviceId(anyLong());
+        LongStream.range(102, 101 + DEVICES).filter(deviceId -> deviceId % 3 != 0).forEach(deviceId -> {
+            assertThat(deviceStatusIndex.isIndexed(deviceId)).isTrue();
+            assertThat(deviceStatusIndex.getDeviceStatus(deviceId).getStatus()).isEqualTo(statusOf(deviceId));
+        });
+        verifyNoMoreInteractions(deviceJdbcRepository);
+    }
+
+    @Test
+    void testOnDeviceChanged_whileLoading_thenKeepItStaleInLoadedIndex() {
+        doAnswer(invocation -> {
+            ObjLongConsumer<Status> consumer = invocation.getArgument(0);
+            deviceStatusIndex.onDeviceChanged(new DeviceChangedEvent(ChangeType.STATUS_UPDATED, 1L, 101L));
+            consumer.accept(Status.ACTIVE, 101L);
+            return null;
+        }).when(deviceJdbcRepository).streamStatuses(any());
+        when(deviceJdbcRepository.findStatusByDeviceId(101L)).thenReturn(Optional.of(Status.BLOCKED));
+
+        deviceStatusIndex.loadAll();
+
+        assertThat(deviceStatusIndex.isIndexed(101L)).isFalse();
+        assertThat(deviceStatusIndex.getDeviceStatus(101L).getStatus()).isEqualTo(Status.BLOCKED);
+    }
+
+    @Test
+    void testGetDeviceStatus_beforeLoaded_thenReadFromDatabase() {
+        when(deviceJdbcRepository.findStatusByDeviceId(101L)).thenReturn(Optional.of(Status.ACTIVE));
+
+        assertThat(deviceStatusIndex.isIndexed(101L)).isFalse();
+        assertThat(deviceStatusIndex.getDeviceStatus(101L).getStatus()).isEqualTo(Status.ACTIVE);
+        verify(deviceJdbcRepository, never()).streamStatuses(any());
+    }
+
+    /**
+     * deviceIds 101 to 10100, odd ones active.
+     */
+    private void streamDevices() {
+        doAnswer(invocation -> {
+            ObjLongConsumer<Status> consumer = invocation.getArgument(0);
+            LongStream.range(101, 101 + DEVICES).forEach(deviceId -> consumer.accept(statusOf(deviceId), deviceId));
+            return null;
+        }).when(deviceJdbcRepository).streamStatuses(any());
+    }
+
+    private static Status statusOf(long deviceId) {
+        return deviceId % 2 == 1 ? Status.ACTIVE : Status.BLOCKED;
+    }
+}
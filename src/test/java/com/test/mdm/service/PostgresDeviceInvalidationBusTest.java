@@ -0,0 +1,42 @@
+package com.test.mdm.service;
+
+import com.test.mdm.event.ChangeType;
+import com.test.mdm.event.DeviceChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static com.test.mdm.service.PostgresDeviceInvalidationBus.MAX_PAYLOAD_LENGTH;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostgresDeviceInvalidationBusTest {
+
+    @Test
+    void testEncode_thenDecodeOnAnotherInstance() {
+        List<DeviceChangedEvent> changes = List.of(
+                new DeviceChangedEvent(ChangeType.UPDATED, 1L, 102L, 101L),
+                new DeviceChangedEvent(ChangeType.DELETED, 2L, 103L));
+
+        List<String> payloads = PostgresDeviceInvalidationBus.encode("a", changes);
+
+        assertThat(payloads).containsExactly("a|UPDATED,1,102,101;DELETED,2,103,");
+        assertThat(PostgresDeviceInvalidationBus.decode("b", payloads.get(0))).isEqualTo(changes);
+        assertThat(PostgresDeviceInvalidationBus.decode("a", payloads.get(0))).isEmpty();
+    }
+
+    @Test
+    void testEncode_withLargeTransaction_thenSplitIntoPayloadsWithinLimit() {
+        List<DeviceChangedEvent> changes = LongStream.range(0, 10_000)
+                .mapToObj(id -> new DeviceChangedEvent(ChangeType.CREATED, id, 1_000_000L + id))
+                .toList();
+
+        List<String> payloads = PostgresDeviceInvalidationBus.encode("a", changes);
+
+        assertThat(payloads).hasSizeGreaterThan(1).allMatch(payload -> payload.length() <= MAX_PAYLOAD_LENGTH);
+        List<DeviceChangedEvent> decoded = new ArrayList<>();
+        payloads.forEach(payload -> decoded.addAll(PostgresDeviceInvalidationBus.decode("b", payload)));
+        assertThat(decoded).isEqualTo(changes);
+    }
+}